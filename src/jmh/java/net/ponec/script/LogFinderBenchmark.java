@@ -0,0 +1,162 @@
+/*
+ *  Copyright 2024-2024 Pavel Ponec
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.ponec.script;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Benchmarks of the LogFinder scanner, including a baseline of the plain {@code BufferedReader.readLine()} loop.
+ * Every {@code matchEvery}-th row of the synthetic log contains the {@code ERROR} word,
+ * so the small value makes a dense and the big value a sparse match rate.
+ * The {@code megabytes} secondary result reports the scanned text in MB/s.
+ * Usage: {@code mvn -P jmh test-compile exec:exec -Djmh.args="LogFinderBenchmark -prof gc"}
+ * @author Pavel Ponec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogFinderBenchmark {
+
+    private static final Pattern PATTERN = Pattern.compile("(ERROR|SEVERE)");
+
+    /** Rows of the log file */
+    @Param({"100000"})
+    private int lines;
+    /** Every n-th row matches the pattern */
+    @Param({"10", "10000"})
+    private int matchEvery;
+    /** Context lines before the match, the minimum is 1 */
+    @Param({"1", "3"})
+    private int beforeLines;
+    /** Context lines after the match */
+    @Param({"0", "10"})
+    private int afterLines;
+
+    private Path dir;
+    private Path logFile;
+    private Path zipFile;
+    private String log;
+    private double megabytes;
+    private PrintStream out;
+
+    /** Count of the scanned megabytes */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Volume {
+        public double megabytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        var body = new StringBuilder(lines * 80);
+        for (int i = 1; i <= lines; i++) {
+            body.append(i % matchEvery == 0
+                    ? "2024-01-01 12:00:00.000 ERROR [main] net.ponec.Service - Row %s failed%n".formatted(i)
+                    : "2024-01-01 12:00:00.000 INFO  [main] net.ponec.Service - Row %s processed%n".formatted(i));
+        }
+        log = body.toString();
+        megabytes = log.getBytes(StandardCharsets.UTF_8).length / 1_000_000.0;
+
+        dir = Files.createTempDirectory("logFinderBenchmark");
+        logFile = dir.resolve("app.log");
+        Files.writeString(logFile, log);
+        zipFile = dir.resolve("app.zip");
+        try (var zip = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            zip.putNextEntry(new ZipEntry("app.log"));
+            zip.write(log.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        out = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(logFile);
+        Files.delete(zipFile);
+        Files.delete(dir);
+    }
+
+    private LogFinder newLogFinder() {
+        return new LogFinder(out, beforeLines, afterLines);
+    }
+
+    // --- LogFinder ---
+
+    @Benchmark
+    public void processTextReader(Volume volume) throws IOException {
+        newLogFinder().processTextReader(new BufferedReader(new StringReader(log)), "app.log", PATTERN);
+        volume.megabytes += megabytes;
+    }
+
+    @Benchmark
+    public void processFile(Volume volume) throws IOException {
+        newLogFinder().processFile(logFile, PATTERN);
+        volume.megabytes += megabytes;
+    }
+
+    @Benchmark
+    public void processZipFile(Volume volume) throws IOException {
+        newLogFinder().processFile(zipFile, PATTERN);
+        volume.megabytes += megabytes;
+    }
+
+    // --- Baseline ---
+
+    @Benchmark
+    public int readLineFile(Volume volume) throws IOException {
+        var result = 0;
+        try (var reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                result += line.length();
+            }
+        }
+        volume.megabytes += megabytes;
+        return result;
+    }
+
+    @Benchmark
+    public int readLineZipFile(Volume volume) throws IOException {
+        var result = 0;
+        try (var zip = new ZipInputStream(Files.newInputStream(zipFile))) {
+            zip.getNextEntry();
+            var reader = new BufferedReader(new InputStreamReader(zip, StandardCharsets.UTF_8));
+            for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+                result += line.length();
+            }
+        }
+        volume.megabytes += megabytes;
+        return result;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *  Copyright 2024-2024 Pavel Ponec
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.ponec.script;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks of the PPUtils commands against a synthetic directory tree.
+ * The tree has {@code width^depth} leaf directories, each of them contains {@code files} text files
+ * of {@code lines} rows, where every {@code matchEvery}-th row contains a Java method declaration.
+ * Usage: {@code mvn -P jmh test-compile exec:exec -Djmh.args="PPUtilsBenchmark -prof gc"}
+ * @author Pavel Ponec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PPUtilsBenchmark {
+
+    private static final Pattern BODY_PATTERN = Pattern.compile("public\\s+(\\w+)\\s+(\\w+)\\(");
+    private static final Pattern FILE_PATTERN = Pattern.compile("\\.java$");
+    private static final String GREPF_FORMAT = "%s %s() in ${file}";
+
+    /** Subdirectories of each directory */
+    @Param({"4"})
+    private int width;
+    /** Levels of the directory tree */
+    @Param({"3"})
+    private int depth;
+    /** Files of each leaf directory */
+    @Param({"10"})
+    private int files;
+    /** Rows of each file */
+    @Param({"200"})
+    private int lines;
+    /** Every n-th row matches the body pattern */
+    @Param({"20"})
+    private int matchEvery;
+
+    private Path root;
+    private Path sampleFile;
+    private Path binaryFile;
+    private Path archiveFile;
+    private String json;
+    private PPUtils.Json parsedJson;
+    private PrintStream out;
+    private PPUtils.Finder finder;
+    private PPUtils.Finder formatFinder;
+    private PPUtils.Converters converters;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("ppUtilsBenchmark");
+        createTree(root.resolve("src"), depth);
+        try (var paths = Files.walk(root)) {
+            sampleFile = paths.filter(Files::isRegularFile).findFirst().orElseThrow();
+        }
+        binaryFile = root.resolve("data.bin");
+        var bytes = new byte[lines * 1_000];
+        new Random(1).nextBytes(bytes);
+        Files.write(binaryFile, bytes);
+        archiveFile = root.resolve("Archive.java");
+        json = createJson();
+        parsedJson = PPUtils.Json.of(json);
+
+        out = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+        finder = new PPUtils.Finder(PPUtils.pathComparator(), BODY_PATTERN, "", FILE_PATTERN, false, out);
+        formatFinder = new PPUtils.Finder(PPUtils.pathComparator(), BODY_PATTERN, GREPF_FORMAT, null, false, out);
+        converters = new PPUtils.Converters(out);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(root)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private void createTree(Path dir, int level) throws IOException {
+        Files.createDirectories(dir);
+        if (level > 0) {
+            for (int i = 0; i < width; i++) {
+                createTree(dir.resolve("dir" + i), level - 1);
+            }
+            return;
+        }
+        var body = new StringBuilder(lines * 40);
+        for (int i = 0; i < lines; i++) {
+            body.append(i % matchEvery == 0
+                    ? "    public String method%s(int value) {%n".formatted(i)
+                    : "        var text%s = \"Lorem ipsum dolor sit amet\";%n".formatted(i));
+        }
+        for (int i = 0; i < files; i++) {
+            Files.writeString(dir.resolve("File%s.%s".formatted(i, i % 2 == 0 ? "java" : "txt")), body);
+        }
+    }
+
+    private String createJson() {
+        var result = new StringBuilder("{ \"id\": 1\n");
+        for (int i = 0; i < lines; i++) {
+            result.append(", \"key%s\": \"value%s\"\n".formatted(i, i));
+        }
+        return result.append(", \"a\": { \"b\": 314, \"c\": true }\n}").toString();
+    }
+
+    // --- Finder ---
+
+    @Benchmark
+    public void findFileNames() throws IOException {
+        new PPUtils.Finder(PPUtils.pathComparator(), null, "", FILE_PATTERN, false, out).findFiles(root, false);
+    }
+
+    @Benchmark
+    public void findFilesWithBody() throws IOException {
+        finder.findFiles(root, true);
+    }
+
+    @Benchmark
+    public boolean grep() {
+        return finder.grep(sampleFile, true);
+    }
+
+    @Benchmark
+    public boolean grepf() {
+        return formatFinder.grep(sampleFile, true);
+    }
+
+    // --- Archive ---
+
+    @Benchmark
+    public long archive() throws IOException {
+        var srcDir = root.resolve("src").resolve("dir0");
+        var builder = new PPUtils.ScriptArchiveBuilder(false, out);
+        builder.build(archiveFile, builder.findInnerFiles(PPUtils.List.of(srcDir.toString())));
+        return Files.size(archiveFile);
+    }
+
+    // --- Converters ---
+
+    @Benchmark
+    public void base64() throws IOException {
+        converters.convertBase64(binaryFile, true);
+        converters.convertBase64(binaryFile.resolveSibling(binaryFile.getFileName() + ".base64"), false);
+    }
+
+    // --- JSON ---
+
+    @Benchmark
+    public PPUtils.Json jsonOf() {
+        return PPUtils.Json.of(json);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(3)
+    public void jsonGet(Blackhole blackhole) {
+        blackhole.consume(parsedJson.get("key0"));
+        blackhole.consume(parsedJson.get("a.b"));
+        blackhole.consume(parsedJson.get("undefined"));
+    }
+}
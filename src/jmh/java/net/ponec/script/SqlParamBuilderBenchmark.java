@@ -0,0 +1,223 @@
+/*
+ *  Copyright 2024-2024 Pavel Ponec
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.ponec.script;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks of the SqlParamBuilder classes against the in-memory H2 database.
+ * Usage: {@code mvn -P jmh test-compile exec:exec -Djmh.args="SqlParamBuilderBenchmark -prof gc"}
+ * @author Pavel Ponec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlParamBuilderBenchmark {
+
+    private static final String SELECT_SQL = """
+            SELECT t.id, t.name, t.created
+            FROM employee t
+            WHERE t.id < :id
+              AND t.code IN (:code)
+            ORDER BY t.id""";
+    private static final String UPDATE_SQL = "UPDATE employee SET name = :name WHERE id = :id";
+    private static final String INSERT_SQL = "INSERT INTO item (code) VALUES (:code)";
+    private static final String IN_LIST_SQL = "SELECT COUNT(*) FROM employee t WHERE t.id IN (:ids)";
+
+    /** Rows of the employee table */
+    @Param({"10000"})
+    private int rows;
+    /** Items of the IN operator */
+    @Param({"100"})
+    private int inListSize;
+
+    private Connection dbConnection;
+    private SqlExecutor.SqlParamBuilder builder;
+    private SqlFileExecutor.SqlParamBuilder fileBuilder;
+    private Object[] inList;
+    private int counter;
+
+    record Employee(int id, String name, LocalDate created) {}
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        dbConnection = DriverManager.getConnection("jdbc:h2:mem:benchmark" + System.nanoTime(), "", "");
+        try (var statement = dbConnection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE employee
+                    ( id INTEGER PRIMARY KEY
+                    , name VARCHAR(256) DEFAULT 'test'
+                    , code VARCHAR(1)
+                    , created DATE NOT NULL )""");
+            statement.execute("CREATE TABLE item (id INTEGER AUTO_INCREMENT PRIMARY KEY, code VARCHAR(10))");
+            statement.execute(("INSERT INTO employee (id, name, code, created)"
+                    + " SELECT x, 'name' || x, CASEWHEN(MOD(x, 2) = 0, 'T', 'V'), DATE '2020-01-01' + MOD(x, 365)"
+                    + " FROM SYSTEM_RANGE(1, %s)").formatted(rows));
+        }
+        builder = new SqlExecutor.SqlParamBuilder(dbConnection);
+        fileBuilder = new SqlFileExecutor.SqlParamBuilder(dbConnection);
+        inList = IntStream.range(0, inListSize).map(i -> i * 7).boxed().toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        builder.close();
+        fileBuilder.close();
+        dbConnection.close();
+    }
+
+    // --- Template expansion ---
+
+    @Benchmark
+    public String buildSql() {
+        builder.sql(SELECT_SQL).bind("id", 10).bind("code", "T", "V");
+        return builder.buildSql(new ArrayList<>(), false);
+    }
+
+    @Benchmark
+    public String buildSqlToLog() {
+        fileBuilder.sql(SELECT_SQL).bind("id", 10).bind("code", "T", "V");
+        return fileBuilder.toString();
+    }
+
+    @Benchmark
+    public PreparedStatement prepareReusedStatement() {
+        return builder.bind("id", ++counter).bind("code", "T", "V").prepareStatement(Statement.NO_GENERATED_KEYS);
+    }
+
+    @Benchmark
+    public PreparedStatement prepareReusedStatementFile() throws SQLException {
+        return fileBuilder.bind("id", ++counter).bind("code", "T", "V").prepareStatement();
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareStatements() {
+        builder.sql(SELECT_SQL);
+        fileBuilder.sql(SELECT_SQL);
+    }
+
+    // --- Bind and execute loops ---
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public int bindAndExecute() {
+        var result = 0;
+        builder.sql(UPDATE_SQL);
+        for (int i = 1; i <= 100; i++) {
+            result += builder.bind("id", i).bind("name", "n" + i).execute();
+        }
+        return result;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public int bindAndExecuteFile() throws SQLException {
+        var result = 0;
+        fileBuilder.sql(UPDATE_SQL);
+        for (int i = 1; i <= 100; i++) {
+            result += fileBuilder.bind("id", i).bind("name", "n" + i).execute();
+        }
+        return result;
+    }
+
+    // --- IN-list expansion ---
+
+    @Benchmark
+    public long inList() {
+        return builder.sql(IN_LIST_SQL)
+                .bind("ids", inList)
+                .streamMap(rs -> rs.getLong(1))
+                .findFirst().orElseThrow();
+    }
+
+    @Benchmark
+    public long inListFile() {
+        return fileBuilder.sql(IN_LIST_SQL)
+                .bind("ids", inList)
+                .streamMap(rs -> rs.getLong(1))
+                .findFirst().orElseThrow();
+    }
+
+    // --- Row mapping ---
+
+    @Benchmark
+    public void streamMapByLabel(Blackhole blackhole) {
+        builder.sql(SELECT_SQL)
+                .bind("id", rows)
+                .bind("code", "T", "V")
+                .streamMap(rs -> new Employee(
+                        rs.getInt("id"),
+                        rs.getString("name"),
+                        rs.getObject("created", LocalDate.class)))
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamMapByIndex(Blackhole blackhole) {
+        builder.sql(SELECT_SQL)
+                .bind("id", rows)
+                .bind("code", "T", "V")
+                .streamMap(rs -> new Employee(
+                        rs.getInt(1),
+                        rs.getString(2),
+                        rs.getObject(3, LocalDate.class)))
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamAsRecord(Blackhole blackhole) {
+        builder.sql(SELECT_SQL)
+                .bind("id", rows)
+                .bind("code", "T", "V")
+                .streamAs(Employee.class)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamMapByLabelFile(Blackhole blackhole) {
+        fileBuilder.sql(SELECT_SQL)
+                .bind("id", rows)
+                .bind("code", "T", "V")
+                .streamMap(rs -> new Employee(
+                        rs.getInt("id"),
+                        rs.getString("name"),
+                        rs.getObject("created", LocalDate.class)))
+                .forEach(blackhole::consume);
+    }
+
+    // --- Generated keys (not supported by the SqlFileExecutor.SqlParamBuilder) ---
+
+    @Benchmark
+    public int generatedKeys() {
+        builder.sql(INSERT_SQL).bind("code", "c").executeInsert();
+        return builder.generatedLastKey(rs -> rs.getInt(1));
+    }
+}
@@ -6,16 +6,38 @@ package net.ponec.script;
 
 import javax.tools.ToolProvider;
 import java.io.*;
+import java.net.StandardProtocolFamily;
 import java.net.URI;
 import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -26,20 +48,25 @@ import java.util.stream.Stream;
  * and saving to a persistent storage.
  *
  * @author https://github.com/pponec
- * @version 2025-09-19
+ * @version 2026-10-18
  */
 public final class DirectoryBookmarks {
     static final String USER_HOME = System.getProperty("user.home");
+    /** A file lock is held by the whole JVM, so threads of the JVM are serialized by this lock */
+    static final ReentrantLock FILE_LOCK = new ReentrantLock();
 
     final String homePage = "https://github.com/pponec/PPScriptsForJava";
     final String appName = getClass().getSimpleName();
-    final String appVersion = "2.0.4";
+    final String appVersion = "2.0.5";
     final String requiredJavaModules = "java.base,java.net.http,jdk.compiler,jdk.crypto.ec";
+    /** JVM options for a fast start of a short process, the class data sharing archive is used together.
+     * The {@code --limit-modules} option can't be used, it disables the class data sharing. */
+    final String startupOptions = "-XX:TieredStopAtLevel=1 -XX:+UseSerialGC -XX:-UsePerfData";
     final char cellSeparator = '\t';
     final char comment = '#';
     final String newLine = System.lineSeparator();
     final String dataHeader = "%s %s %s (%s)".formatted(comment, appName, appVersion, homePage);
-    final String currentDir = System.getProperty("user.dir");
+    final String currentDir;
     final String currentDirMark = ".";
     /** Shortcut for a home directory. Empty text is ignored. */
     final String homeDirMark = "~";
@@ -53,6 +80,7 @@ public final class DirectoryBookmarks {
     final boolean isSystemWindows;
     final char dirSeparator;
     final Utilities utils = new Utilities();
+    final BookmarkStore store;
 
     public static void main(String[] arguments) throws Exception {
         var args = List.of(arguments);
@@ -60,9 +88,12 @@ public final class DirectoryBookmarks {
         if (enforcedLinux) {
             args.remove(0);
         }
-        new DirectoryBookmarks(new File(USER_HOME, ".directory-bookmarks.csv"),
-                System.out,
-                System.err, enforcedLinux, false).mainRun(args);
+        var bookmarks = new DirectoryBookmarks(new File(USER_HOME, ".directory-bookmarks.csv"),
+                BufferedPrintStream.ofStdout(),
+                System.err, enforcedLinux, false);
+        bookmarks.mainRun(args);
+        bookmarks.out.flush();
+        bookmarks.store.flushUsage(true); // After the output
     }
 
     DirectoryBookmarks(File storeName,
@@ -76,6 +107,20 @@ public final class DirectoryBookmarks {
         this.exitByException = exitByException;
         this.isSystemWindows = !enforcedLinux && utils.isSystemMsWindows();
         this.dirSeparator = enforcedLinux ? '/' : File.separatorChar;
+        this.currentDir = System.getProperty("user.dir");
+        this.store = new BookmarkStore();
+    }
+
+    /** An instance for a daemon request, the store is shared */
+    private DirectoryBookmarks(DirectoryBookmarks daemon, String currentDir, PrintStream out) {
+        this.storeName = daemon.storeName;
+        this.out = out;
+        this.err = out;
+        this.exitByException = true;
+        this.isSystemWindows = daemon.isSystemWindows;
+        this.dirSeparator = daemon.dirSeparator;
+        this.currentDir = currentDir;
+        this.store = daemon.store;
     }
 
     /** The main object method */
@@ -117,11 +162,28 @@ public final class DirectoryBookmarks {
                 var dir = args.get(1, currentDir);
                 printAllBookmarksOfDirectory(dir);
             }
+            case "w", "within" -> { // bookmarks inside subtrees of directories
+                var dirs = args.size() > 1 ? args.subList(1, args.size()) : List.of(currentDir);
+                printBookmarksWithin(dirs);
+            }
+            case "a", "complete"-> { // ranked keys for a shell completion
+                store.keyIndex().complete(args.get(1, "")).forEach(out::println);
+            }
+            case "j", "jump" -> { // get a directory of the best ranked key
+                var text = args.get(1, homeDirMark);
+                var idx = Math.max(text.indexOf('/'), text.indexOf('\\'));
+                var key = jumpKey(idx >= 0 ? text.substring(0, idx) : text);
+                mainRun(List.of("l", key + (idx >= 0 ? text.substring(idx) : "")));
+            }
+            case "t", "top" -> { // bookmarks sorted by the frecency score
+                printFrecencies();
+            }
             case "i", "install"-> {
                 printInstall();
             }
-            case "f", "fix"-> {
-                fixMarksOfMissingDirectories();
+            case "f", "fix"-> { // optional timeout in seconds
+                var timeout = Duration.ofMillis((long) (1000 * Double.parseDouble(args.get(1, "2"))));
+                fixMarksOfMissingDirectories(timeout);
             }
             case "c", "compile" -> {
                 utils.compile();
@@ -131,6 +193,17 @@ public final class DirectoryBookmarks {
                 out.printf("%s %s was downloaded. The following compilation is recommended.%n",
                         appName, getScriptVersion());
             }
+            case "daemon" -> {
+                try (var daemon = new Daemon(siblingFile(".socket").toPath())) {
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        daemon.socket.toFile().delete();
+                        store.flushUsage(true);
+                    }));
+                    out.printf("%s daemon is listening on the socket: %s%n", appName, daemon.socket);
+                    out.flush();
+                    daemon.run();
+                }
+            }
             case "v", "version"-> {
                 var scriptVersion = getScriptVersion();
                 if (appVersion.equals(scriptVersion)) {
@@ -151,6 +224,7 @@ public final class DirectoryBookmarks {
      * @param status The positive value signs a correct terminate.
      */
     private void printHelpAndExit(int status) {
+        this.out.flush();
         var out = status == 0 ? this.out : this.err;
         var isJar = utils.isJar();
         var executable = "java %s%s.%s".formatted(
@@ -158,7 +232,7 @@ public final class DirectoryBookmarks {
                 appName,
                 isJar ? "jar" : "java");
         out.printf("%s %s (%s)%n", appName, appVersion, homePage);
-        out.printf("Usage: %s [slgdrbfuc] directory bookmark optionalComment%n", executable);
+        out.printf("Usage: %s [slgdrbwajtfuc] directory bookmark optionalComment%n", executable);
         if (isSystemWindows) {
             var initFile = "$HOME\\Documents\\WindowsPowerShell\\Microsoft.PowerShell_profile.ps1";
             out.printf("Integrate the script to Windows: %s i >> %s", executable, initFile);
@@ -177,21 +251,17 @@ public final class DirectoryBookmarks {
         if (exitByException && status != 0) {
             throw new UnsupportedOperationException(msg);
         } else {
+            this.out.flush();
             final var output = status >= 0 ? this.out : this.err;
             output.println(msg);
             System.exit(status);
         }
     }
 
-    private void printDirectories() throws IOException {
-        var storeFile = createStoreFile();
-        try (var reader = new BufferedReader(new FileReader(storeFile))) {
-            reader.lines()
-                    .filter(line -> !line.startsWith(String.valueOf(comment)))
-                    .sorted()
-                    .map(line -> isSystemWindows ? line.replace('/', '\\') : line)
-                    .forEach(out::println);
-        }
+    private void printDirectories() {
+        store.sortedLines().stream()
+                .map(line -> isSystemWindows ? line.replace('/', '\\') : line)
+                .forEach(out::println);
     }
 
     /**
@@ -210,24 +280,43 @@ public final class DirectoryBookmarks {
                 var idx = Math.max(key.indexOf('/'), key.indexOf('\\'));
                 var extKey = idx >= 0 ? key.substring(0, idx) : key;
                 var endDir = idx >= 0 ? key.substring(idx) : "";
-                var pattern = Pattern.compile("%s((?:(?!%s).)*)".formatted(
-                                Pattern.quote(extKey + cellSeparator),
-                                Pattern.quote("" + cellSeparator + comment)));
-                var storeFile = createStoreFile();
-                try (var reader = new BufferedReader(new FileReader(storeFile))) {
-                    return reader.lines()
-                            .map(pattern::matcher)
-                            .map(matcher -> matcher.find() ? matcher.group(1) : null)
-                            .filter(Objects::nonNull)
-                            .map(dir -> convertDir(false, dir + endDir, isSystemWindows))
-                            .findFirst()
-                            .orElse(defaultDir);
-                } catch (IOException e) {
-                    throw new IllegalStateException(e);
+                var entry = store.get(extKey);
+                if (entry != null) {
+                    store.usage.record(extKey);
                 }
+                return entry != null
+                        ? convertDir(false, entry.dir() + endDir, isSystemWindows)
+                        : defaultDir;
         }
     }
 
+    /** Get the exact key or a key of the completion candidates with the best frecency score,
+     * the completion order decides between the same scores. */
+    private String jumpKey(String text) {
+        if (text.equals(currentDirMark) || text.equals(homeDirMark) || store.get(text) != null) {
+            return text;
+        }
+        var hits = store.usage.hits();
+        var now = Usage.now();
+        return store.keyIndex().complete(text).stream()
+                .sorted(Comparator.comparingDouble((String key) -> hits.containsKey(key) ? hits.get(key).score(now) : 0.0)
+                        .reversed())
+                .findFirst()
+                .orElse(text);
+    }
+
+    /** Print the score, the key and the directory of used bookmarks sorted by the frecency score */
+    private void printFrecencies() {
+        var hits = store.usage.hits();
+        var now = Usage.now();
+        store.sortedEntries().stream()
+                .filter(entry -> hits.containsKey(entry.key()))
+                .sorted(Comparator.comparingDouble((BookmarkStore.Entry entry) -> hits.get(entry.key()).score(now))
+                        .reversed())
+                .forEach(entry -> out.printf("%.2f\t%s\t%s%n", hits.get(entry.key()).score(now), entry.key(),
+                        convertDir(false, entry.dir(), isSystemWindows)));
+    }
+
     private void removeBookmark(String key) throws IOException {
         save("", key, List.of());
     }
@@ -239,37 +328,20 @@ public final class DirectoryBookmarks {
         if (currentDirMark.equals(dir)) {
             dir = currentDir;
         }
-        var tempFile = getTempStoreFile();
-        var storeFile = createStoreFile();
-        try (var writer = new BufferedWriter(new FileWriter(tempFile))) {
-            writer.append(dataHeader).append(newLine);
-            if (!dir.isEmpty()) {
-                // Function `isSystemMsWindows()` is required due a GitBash
-                writer.append(key).append(cellSeparator).append(convertDir(true, dir, utils.isSystemMsWindows()));
-                if (!comments.isEmpty()) {
-                    writer.append(cellSeparator).append(comment);
-                    for (String comment : comments) {
-                        writer.append(' ').append(comment);
-                    }
+        var line = (String) null;
+        if (!dir.isEmpty()) {
+            // Function `isSystemMsWindows()` is required due a GitBash
+            var builder = new StringBuilder()
+                    .append(key).append(cellSeparator).append(convertDir(true, dir, utils.isSystemMsWindows()));
+            if (!comments.isEmpty()) {
+                builder.append(cellSeparator).append(comment);
+                for (String comment : comments) {
+                    builder.append(' ').append(comment);
                 }
-                writer.append(newLine);
-            }
-            try (var reader = new BufferedReader(new FileReader(storeFile))) {
-                reader.lines()
-                        .filter(line -> !line.startsWith(String.valueOf(comment)))
-                        .filter(line -> !line.startsWith(key + cellSeparator))
-                        .filter(line -> !line.trim().isEmpty())
-                        .sorted()
-                        .forEach(line -> {
-                            try {
-                                writer.append(line).append(newLine);
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
             }
+            line = builder.toString();
         }
-        Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        store.write(line, Set.of(key));
     }
 
     private File createStoreFile() {
@@ -283,44 +355,88 @@ public final class DirectoryBookmarks {
         return storeName;
     }
 
+    /** Get a file next to the store file with a different extension */
+    private File siblingFile(String extension) {
+        var name = storeName.getName();
+        var dotIndex = name.lastIndexOf('.');
+        return new File(storeName.getParentFile(), (dotIndex > 0 ? name.substring(0, dotIndex) : name) + extension);
+    }
+
     private File getTempStoreFile() throws IOException {
         return File.createTempFile(".dirbook", ".temp", storeName.getParentFile());
     }
 
-    private void fixMarksOfMissingDirectories() throws IOException {
-        var keys = getAllSortedKeys();
-        keys.stream()
-                .filter(key -> {
-                    var dir = getDirectory(key, "");
-                    return dir.isEmpty() || !new File(dir).isDirectory();
-                })
-                .forEach(key -> {
-                    try {
-                        var msg = "Removed: %s\t%s".formatted(key, getDirectory(key, "?"));
-                        out.println(msg);
-                        removeBookmark(key);
-                    } catch (IOException e) {
-                        throw new IllegalStateException(e);
+    /** Remove bookmarks of missing directories by a single store update.
+     * Directories are checked concurrently, an unavailable directory (for example an unresponsive network drive)
+     * is reported and kept after the timeout. */
+    private void fixMarksOfMissingDirectories(Duration timeout) throws IOException, InterruptedException {
+        var entries = store.sortedEntries();
+        var executor = newExecutor();
+        try {
+            var checks = entries.stream()
+                    .map(entry -> convertDir(false, entry.dir(), isSystemWindows))
+                    .map(dir -> executor.submit(() -> !dir.isEmpty() && new File(dir).isDirectory()))
+                    .toList();
+            var deadline = System.nanoTime() + timeout.toNanos();
+            var removedKeys = new LinkedHashSet<String>();
+            for (int i = 0; i < entries.size(); i++) {
+                var entry = entries.get(i);
+                var dir = convertDir(false, entry.dir(), isSystemWindows);
+                try {
+                    if (!checks.get(i).get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                        out.println("Removed: %s\t%s".formatted(entry.key(), dir));
+                        removedKeys.add(entry.key());
                     }
-                });
+                } catch (TimeoutException | ExecutionException e) {
+                    out.println("Unavailable: %s\t%s".formatted(entry.key(), dir));
+                }
+            }
+            if (!removedKeys.isEmpty()) {
+                store.write(null, removedKeys);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private List<String> getAllSortedKeys() throws IOException {
-        try (var reader = new BufferedReader(new FileReader(createStoreFile()))) {
-            return List.of(reader.lines()
-                    .filter(line -> !line.startsWith(String.valueOf(comment)))
-                    .sorted()
-                    .map(line -> line.substring(0, line.indexOf(cellSeparator)))
-                    .toList());
+    /** Virtual threads of Java 21+ or a fixed pool of daemon platform threads,
+     * so a blocked check does not block the exit */
+    private ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            var threads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+            return Executors.newFixedThreadPool(threads, task -> {
+                var thread = new Thread(task, "directory-check");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
     }
 
-    private void printAllBookmarksOfDirectory(String directory) throws IOException {
-        getAllSortedKeys().forEach(key -> {
-            if (directory.equals(getDirectory(key, ""))) {
-                out.println(key);
-            }
-        });
+    private List<String> getAllSortedKeys() {
+        return List.of(store.sortedEntries().stream()
+                .map(BookmarkStore.Entry::key)
+                .toList());
+    }
+
+    private void printAllBookmarksOfDirectory(String directory) {
+        store.keysOf(directory).forEach(out::println);
+    }
+
+    /** Print bookmarks pointing inside subtrees of the directories, symbolic links are resolved.
+     * All directories are searched by a single walk of the path tree. */
+    private void printBookmarksWithin(Collection<String> directories) {
+        var query = new PathTree();
+        for (var directory : directories) {
+            query.add(PathTree.realPath(Path.of(currentDir).resolve(directory)), "");
+        }
+        var keys = new HashSet<String>();
+        store.pathTree().collect(query, keys);
+        store.sortedEntries().stream()
+                .filter(entry -> keys.contains(entry.key()))
+                .map(entry -> isSystemWindows ? entry.line().replace('/', '\\') : entry.line())
+                .forEach(out::println);
     }
 
     /** Read version from the external script. */
@@ -343,27 +459,49 @@ public final class DirectoryBookmarks {
     private void printInstall() {
         var exePath = utils.getPathOfRunningApplication().replace(USER_HOME, "$HOME");
         var javaHome = System.getProperty("java.home");
+        var javaOptions = utils.sharedArchive().isFile()
+                ? "-XX:SharedArchiveFile=\"%s\" %s".formatted(utils.sharedArchive().getPath().replace(USER_HOME, "$HOME"), startupOptions)
+                : "--limit-modules " + requiredJavaModules;
         if (isSystemWindows) {
-            var exe = "\"%s\\bin\\java\" --limit-modules %s %s\"%s\""
-                    .formatted(javaHome, requiredJavaModules, utils.isJar() ? "-jar " : "", exePath);
+            var exe = "\"%s\\bin\\java\" %s %s\"%s\""
+                    .formatted(javaHome, javaOptions, utils.isJar() ? "-jar " : "", exePath);
             var msg = String.join(System.lineSeparator(), ""
                     , "# Shortcuts for %s v%s utilities - for the PowerShell:".formatted(appName, appVersion)
                     , "function directoryBookmarks { & %s $args }".formatted(exe)
                     , "function cdf { Set-Location -Path $(directoryBookmarks -g $args) }"
                     , "function sdf { directoryBookmarks s $($PWD.Path) @args }"
                     , "function ldf { directoryBookmarks l $args }"
+                    , "function jdf { Set-Location -Path $(directoryBookmarks -j $args) }"
                     , "function cpf() { cp ($args[0..($args.Length - 2)]) -Destination (ldf $args[-1]) -Force }");
             out.println(msg);
         } else {
-            var exe = "\"%s/bin/java\" --limit-modules %s %s\"%s\""
-                    .formatted(javaHome, requiredJavaModules, utils.isJar() ? "-jar " : "", exePath);
+            var exe = "\"%s/bin/java\" %s %s\"%s\""
+                    .formatted(javaHome, javaOptions, utils.isJar() ? "-jar " : "", exePath);
+            var socket = siblingFile(".socket").getPath().replace(USER_HOME, "$HOME");
             var msg = String.join(System.lineSeparator(), ""
                     , "# Shortcuts for %s v%s utilities - for the Bash:".formatted(appName, appVersion)
-                    , "alias directoryBookmarks='%s'".formatted(exe)
-                    , "cdf() { cd \"$(directoryBookmarks g $1)\"; }"
+                    , "# An optional daemon for fast lookups requires the 'socat', run it by: (directoryBookmarksJava daemon > /dev/null &)"
+                    , "directoryBookmarksJava() { %s \"$@\"; }".formatted(exe)
+                    , "directoryBookmarks() {"
+                    , "  local socket=\"%s\" reply".formatted(socket)
+                    , "  case \"$1\" in l|g|s|d|r|b|w|a|j|t|list|get|save|delete|remove|bookmarks|within|complete|jump|top)"
+                    , "    [ -S \"$socket\" ] && command -v socat > /dev/null"
+                            + " && reply=\"$({ printf '%s' \"$PWD\"; printf '\\t%s' \"$@\"; echo; }"
+                            + " | socat - \"UNIX-CONNECT:$socket\" 2> /dev/null)\""
+                    , "    case \"$reply\" in" // The first line is a status of the daemon
+                    , "      0|0$'\\n'*) [ -z \"${reply:2}\" ] || printf '%s\\n' \"${reply:2}\"; return 0;;"
+                    , "      1|1$'\\n'*) printf '%s\\n' \"${reply:2}\" >&2; return 1;;"
+                    , "    esac;;"
+                    , "  esac"
+                    , "  directoryBookmarksJava \"$@\""
+                    , "}"
+                    , "cdf() { local dir; dir=\"$(directoryBookmarks g $1)\" && cd \"$dir\"; }"
                     , "sdf() { directoryBookmarks s \"$PWD\" \"$@\"; }" // Ready for symbolic links
                     , "ldf() { directoryBookmarks l \"$1\"; }"
-                    , "cpf() { argCount=$#; cp ${@:1:$((argCount-1))} \"$(ldf ${!argCount})\"; }");
+                    , "jdf() { local dir; dir=\"$(directoryBookmarks j $1)\" && cd \"$dir\"; }"
+                    , "cpf() { argCount=$#; local dir; dir=\"$(ldf ${!argCount})\" && cp ${@:1:$((argCount-1))} \"$dir\"; }"
+                    , "_directoryBookmarksComplete() { local IFS=$'\\n'; COMPREPLY=($(directoryBookmarks a \"${COMP_WORDS[COMP_CWORD]}\")); }"
+                    , "complete -F _directoryBookmarksComplete cdf ldf jdf");
             out.println(msg);
         }
     }
@@ -388,6 +526,935 @@ public final class DirectoryBookmarks {
         }
     }
 
+    /** Bookmarks of the store file parsed once to a key map and to a reverse index of directories.
+     * The content is reloaded when the last modification or the size of the file changes.
+     * In the journal mode, a save appends a record to the journal file only, readers replay the journal
+     * over the store file, and the journal is compacted to the store file when its size exceeds the limit. */
+    final class BookmarkStore {
+        /** The journal size limit in bytes, the zero value disables the journal mode. */
+        long journalLimit = Long.getLong("journal.limit", 0L);
+        /** Entries by the key in the file order */
+        private Map<String, Entry> entries = Map.of();
+        /** Entries sorted by the line */
+        private List<Entry> sortedEntries;
+        /** Sorted keys by a converted directory */
+        private Map<String, List<String>> keysOfDirectory;
+        /** Sorted keys */
+        private KeyIndex keyIndex;
+        /** Keys by canonical directories */
+        private PathTree pathTree;
+        /** Canonical paths by converted directories for the current store file, loaded from the sidecar file */
+        private Map<String, Path> realPaths;
+        /** A timeout for resolving canonical paths, a blocked directory (an unmounted network drive) is normalized only */
+        Duration realPathTimeout = Duration.ofSeconds(2);
+        private long lastModified = -1L;
+        private long length = -1L;
+        /** Size of the replayed journal */
+        private long journalLength = 0L;
+        /** A snapshot for lookups before the file is parsed */
+        private Snapshot snapshot;
+        /** Usage statistics of bookmarks */
+        final Usage usage = new Usage(siblingFile(".usage"), Long.getLong("usage.limit", 0L));
+
+        /** A bookmark line, the directory is in the store format. */
+        record Entry(String key, String dir, String line) {
+            static Entry of(String line, char cellSeparator, char comment) {
+                var keyEnd = line.indexOf(cellSeparator);
+                if (keyEnd < 0) {
+                    return new Entry(line, "", line);
+                }
+                var dirEnd = line.indexOf("" + cellSeparator + comment, keyEnd + 1);
+                var dir = dirEnd >= 0 ? line.substring(keyEnd + 1, dirEnd) : line.substring(keyEnd + 1);
+                return new Entry(line.substring(0, keyEnd), dir, line);
+            }
+        }
+
+        /** Get the entry or {@code null}. The first lookup uses a valid snapshot rather than the CSV file. */
+        Entry get(String key) {
+            var snapshot = coldSnapshot();
+            if (snapshot != null) {
+                var records = journalRecords(snapshot);
+                var line = records.containsKey(key) ? records.get(key) : snapshot.line(key);
+                return line != null ? Entry.of(line, cellSeparator, comment) : null;
+            }
+            return entries().get(key);
+        }
+
+        /** Get a valid snapshot or {@code null} */
+        private Snapshot snapshot() {
+            var file = createStoreFile();
+            var journal = journalFile();
+            if (snapshot == null || !snapshot.isValid(file, journal)) {
+                snapshot = Snapshot.open(snapshotFile(), file, journal, !utils.isSystemMsWindows());
+            }
+            return snapshot;
+        }
+
+        /** Get a valid snapshot before the file is parsed, or {@code null} */
+        private Snapshot coldSnapshot() {
+            return lastModified < 0L ? snapshot() : null;
+        }
+
+        /** Get journal records newer than the snapshot: a line by the key, or {@code null} for a removed key */
+        private Map<String, String> journalRecords(Snapshot snapshot) {
+            var result = new HashMap<String, String>();
+            for (var record : readJournal(snapshot.journalLength())) {
+                result.put(recordKey(record), record.charAt(0) == '+' ? record.substring(1) : null);
+            }
+            return result;
+        }
+
+        /** Get an index of sorted keys, a snapshot with newer journal records is used before the file is parsed. */
+        KeyIndex keyIndex() {
+            var snapshot = coldSnapshot();
+            if (snapshot != null) {
+                var keys = snapshot.keys();
+                var records = journalRecords(snapshot);
+                if (!records.isEmpty()) {
+                    keys.removeIf(records::containsKey);
+                    records.forEach((key, line) -> {
+                        if (line != null) {
+                            keys.add(key);
+                        }
+                    });
+                    keys.sort(Comparator.naturalOrder());
+                }
+                return new KeyIndex(keys);
+            }
+            entries();
+            if (keyIndex == null) {
+                keyIndex = new KeyIndex(List.of(entries.keySet().stream().sorted().toList()));
+            }
+            return keyIndex;
+        }
+
+        /** Get lines sorted, a snapshot with newer journal records is used before the file is parsed. */
+        List<String> sortedLines() {
+            var snapshot = coldSnapshot();
+            if (snapshot != null) {
+                var result = snapshot.lines();
+                var records = journalRecords(snapshot);
+                if (!records.isEmpty()) {
+                    result.removeIf(line -> records.containsKey(Entry.of(line, cellSeparator, comment).key()));
+                    records.values().stream().filter(Objects::nonNull).forEach(result::add);
+                }
+                result.sort(Comparator.naturalOrder()); // Lines sorted by keys are sorted almost, so the sort is linear
+                return result;
+            }
+            return List.of(sortedEntries().stream().map(Entry::line).toList());
+        }
+
+        List<Entry> sortedEntries() {
+            entries();
+            if (sortedEntries == null) {
+                sortedEntries = List.of(entries.values().stream()
+                        .sorted(Comparator.comparing(Entry::line))
+                        .toList());
+            }
+            return sortedEntries;
+        }
+
+        /** Get a tree of keys by canonical directories, a real path of each directory is resolved once
+         * for the store file state and it is saved to the sidecar file */
+        PathTree pathTree() {
+            entries();
+            if (pathTree == null) {
+                var dirs = sortedEntries().stream()
+                        .map(entry -> convertDir(false, entry.dir(), isSystemWindows))
+                        .toList();
+                var paths = realPaths(dirs);
+                var result = new PathTree();
+                for (int i = 0; i < dirs.size(); i++) {
+                    var path = paths.get(dirs.get(i));
+                    if (path != null) { // An invalid directory is ignored
+                        result.add(path, sortedEntries().get(i).key());
+                    }
+                }
+                pathTree = result;
+            }
+            return pathTree;
+        }
+
+        /** Get canonical paths of the directories. Missing paths are resolved concurrently and saved,
+         * a path unresolved in the timeout is normalized only and it is not saved. */
+        private Map<String, Path> realPaths(Collection<String> dirs) {
+            if (realPaths == null) {
+                realPaths = readRealPaths();
+            }
+            var result = new HashMap<>(realPaths);
+            var missing = new LinkedHashMap<String, Path>();
+            for (var dir : dirs) {
+                try {
+                    if (!result.containsKey(dir)) {
+                        missing.put(dir, Path.of(dir));
+                    }
+                } catch (InvalidPathException e) {
+                    result.put(dir, null);
+                }
+            }
+            if (missing.isEmpty()) {
+                return result;
+            }
+            var executor = newExecutor();
+            try {
+                var resolved = new LinkedHashMap<String, Future<Path>>();
+                missing.forEach((dir, path) -> resolved.put(dir, executor.submit(() -> PathTree.realPath(path))));
+                var deadline = System.nanoTime() + realPathTimeout.toNanos();
+                for (var item : resolved.entrySet()) {
+                    try {
+                        var path = item.getValue().get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        realPaths.put(item.getKey(), path);
+                        result.put(item.getKey(), path);
+                    } catch (TimeoutException | ExecutionException e) {
+                        result.put(item.getKey(), missing.get(item.getKey()).toAbsolutePath().normalize());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            writeRealPaths();
+            return result;
+        }
+
+        /** Read canonical paths of the current store file state, the sidecar file is optional. */
+        private Map<String, Path> readRealPaths() {
+            var result = new HashMap<String, Path>();
+            var file = realPathFile();
+            if (file.isFile()) {
+                try (var reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+                    if ("%s\t%s".formatted(lastModified, length).equals(reader.readLine())) {
+                        reader.lines().forEach(line -> {
+                            var index = line.indexOf('\t');
+                            result.put(line.substring(0, index), Path.of(line.substring(index + 1)));
+                        });
+                    }
+                } catch (IOException | RuntimeException e) {
+                    result.clear();
+                }
+            }
+            return result;
+        }
+
+        /** Write canonical paths with the store file state by a temporary file, a write failure is ignored. */
+        private void writeRealPaths() {
+            try {
+                var tempFile = getTempStoreFile();
+                try {
+                    try (var writer = new BufferedWriter(new FileWriter(tempFile, StandardCharsets.UTF_8))) {
+                        writer.append("%s\t%s".formatted(lastModified, length)).append('\n');
+                        for (var item : realPaths.entrySet()) {
+                            writer.append(item.getKey()).append('\t').append(item.getValue().toString()).append('\n');
+                        }
+                    }
+                    Files.move(tempFile.toPath(), realPathFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    tempFile.delete();
+                }
+            } catch (IOException | RuntimeException e) {
+                realPathFile().delete();
+            }
+        }
+
+        /** Get sorted keys of the directory */
+        List<String> keysOf(String directory) {
+            entries();
+            if (keysOfDirectory == null) {
+                var result = new HashMap<String, List<String>>();
+                for (var entry : sortedEntries()) {
+                    result.computeIfAbsent(convertDir(false, entry.dir(), isSystemWindows), k -> List.<String>of())
+                            .add(entry.key());
+                }
+                keysOfDirectory = result;
+            }
+            return keysOfDirectory.getOrDefault(directory, List.of());
+        }
+
+        private Map<String, Entry> entries() {
+            var file = createStoreFile();
+            var journalSize = journalFile().length();
+            if (file.lastModified() != lastModified || file.length() != length || journalSize < journalLength) {
+                var result = new LinkedHashMap<String, Entry>();
+                try (var reader = new BufferedReader(new FileReader(file))) {
+                    reader.lines()
+                            .filter(line -> !line.startsWith(String.valueOf(comment)))
+                            .filter(line -> !line.trim().isEmpty())
+                            .map(line -> Entry.of(line, cellSeparator, comment))
+                            .forEach(entry -> result.putIfAbsent(entry.key(), entry));
+                } catch (IOException e) {
+                    throw new IllegalStateException(file.toString(), e);
+                }
+                update(result, file, 0L);
+                replayJournal();
+                if (snapshot() == null) {
+                    writeSnapshot(); // A valid snapshot is completed by the journal
+                }
+            } else if (journalSize > journalLength) {
+                replayJournal();
+            }
+            return entries;
+        }
+
+        private void update(Map<String, Entry> entries, File file, long journalLength) {
+            this.entries = entries;
+            this.sortedEntries = null;
+            this.keysOfDirectory = null;
+            this.keyIndex = null;
+            this.pathTree = null;
+            this.realPaths = null;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.journalLength = journalLength;
+        }
+
+        /** Apply new records of the journal */
+        private void replayJournal() {
+            for (var record : readJournal(journalLength)) {
+                journalLength += record.getBytes(Charset.defaultCharset()).length + 1;
+                var key = recordKey(record);
+                entries.remove(key);
+                if (record.charAt(0) == '+') {
+                    entries.put(key, Entry.of(record.substring(1), cellSeparator, comment));
+                }
+            }
+            sortedEntries = null;
+            keysOfDirectory = null;
+            keyIndex = null;
+            pathTree = null;
+        }
+
+        /** Read complete records of the journal from the position */
+        private List<String> readJournal(long position) {
+            var journal = journalFile();
+            if (journal.length() <= position) {
+                return List.of();
+            }
+            try (var channel = FileChannel.open(journal.toPath(), StandardOpenOption.READ)) {
+                var buffer = ByteBuffer.allocate((int) (channel.size() - position));
+                while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                    // Read the rest of the journal
+                }
+                var text = new String(buffer.array(), 0, buffer.position(), Charset.defaultCharset());
+                return List.of(text.substring(0, text.lastIndexOf('\n') + 1).lines().toList());
+            } catch (IOException e) {
+                throw new IllegalStateException(journal.toString(), e);
+            }
+        }
+
+        /** The record starts with the {@code '+'} character and a line, or the {@code '-'} character and a key. */
+        private String recordKey(String record) {
+            return record.charAt(0) == '+'
+                    ? Entry.of(record.substring(1), cellSeparator, comment).key()
+                    : record.substring(1);
+        }
+
+        /** Save the new line and remove lines of the keys by a single update.
+         * In the journal mode, records are appended without reading the store,
+         * the store file and the snapshot are rebuilt by the compaction over the limit only.
+         * @param line A new line replacing the line of the same key or {@code null} for the remove only. */
+        void write(String line, Collection<String> removedKeys) throws IOException {
+            if (journalLimit <= 0L) {
+                rewrite(line, removedKeys);
+                writeSnapshot();
+                return;
+            }
+            var records = new StringBuilder();
+            var lineKey = line != null ? Entry.of(line, cellSeparator, comment).key() : null;
+            removedKeys.stream()
+                    .filter(key -> !key.equals(lineKey))
+                    .forEach(key -> records.append('-').append(key).append('\n'));
+            if (line != null) {
+                records.append('+').append(line).append('\n');
+            }
+            FILE_LOCK.lock();
+            try (var channel = FileChannel.open(journalFile().toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                var lock = channel.lock();
+                try {
+                    channel.write(ByteBuffer.wrap(records.toString().getBytes(Charset.defaultCharset())));
+                    if (channel.size() > journalLimit) {
+                        entries(); // Records of all processes
+                        rewrite(null, Set.of());
+                        channel.truncate(0L);
+                        journalLength = 0L;
+                        writeSnapshot();
+                    }
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                FILE_LOCK.unlock();
+            }
+        }
+
+        /** Write the new line on the top of the store file and remove lines of the keys.
+         * The journal is merged to the store file.
+         * @param line A new line replacing the line of the same key or {@code null} for the remove only. */
+        private void rewrite(String line, Collection<String> removedKeys) throws IOException {
+            var result = new LinkedHashMap<String, Entry>();
+            if (line != null) {
+                var entry = Entry.of(line, cellSeparator, comment);
+                result.put(entry.key(), entry);
+            }
+            sortedEntries().stream()
+                    .filter(entry -> !result.containsKey(entry.key()) && !removedKeys.contains(entry.key()))
+                    .forEach(entry -> result.put(entry.key(), entry));
+
+            var tempFile = getTempStoreFile();
+            try (var writer = new BufferedWriter(new FileWriter(tempFile))) {
+                writer.append(dataHeader).append(newLine);
+                for (var entry : result.values()) {
+                    writer.append(entry.line()).append(newLine);
+                }
+            }
+            Files.move(tempFile.toPath(), storeName.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            update(result, storeName, journalLength);
+            if (journalLimit <= 0L && journalLength > 0L) {
+                journalFile().delete();
+                journalLength = 0L;
+            }
+        }
+
+        /** The snapshot is optional, so a write failure is ignored. */
+        private void writeSnapshot() {
+            try {
+                Snapshot.write(snapshotFile(), storeName, lastModified, length, journalLength, entries.values());
+            } catch (IOException | RuntimeException e) {
+                snapshotFile().delete();
+            }
+        }
+
+        /** Append the collected hits to the usage file, removed bookmarks are dropped by the compaction.
+         * The statistics are optional, so a write failure is ignored.
+         * @param force Flush hits of a small batch too */
+        void flushUsage(boolean force) {
+            try {
+                if (force || usage.isBatchReady()) {
+                    usage.flush(key -> entries().containsKey(key));
+                }
+            } catch (IOException | RuntimeException e) {
+                usage.clear();
+            }
+        }
+
+        private File snapshotFile() {
+            return siblingFile(".bin");
+        }
+
+        private File journalFile() {
+            return siblingFile(".journal");
+        }
+
+        private File realPathFile() {
+            return siblingFile(".paths");
+        }
+    }
+
+    /** A search of sorted keys by a prefix (binary search) or by a subsequence of characters.
+     * Candidates are ranked: the exact key, a prefix, a case-insensitive prefix, a substring, a subsequence. */
+    static final class KeyIndex {
+        private final List<String> keys;
+
+        KeyIndex(List<String> sortedKeys) {
+            this.keys = sortedKeys;
+        }
+
+        /** Keys starting with the prefix */
+        List<String> startingWith(String prefix) {
+            var index = Collections.binarySearch(keys, prefix);
+            var result = List.<String>of();
+            for (int i = index >= 0 ? index : -index - 1; i < keys.size() && keys.get(i).startsWith(prefix); i++) {
+                result.add(keys.get(i));
+            }
+            return result;
+        }
+
+        /** Keys for a shell completion: keys starting with the text, or ranked keys of the {@link #find(String)} method */
+        List<String> complete(String text) {
+            var result = startingWith(text);
+            return result.isEmpty() ? find(text) : result;
+        }
+
+        /** Ranked keys containing all characters of the text in the same order, the case is ignored */
+        List<String> find(String text) {
+            var lowerText = text.toLowerCase(Locale.ENGLISH);
+            var scores = new HashMap<String, Integer>();
+            for (var key : keys) {
+                var score = score(key, text, lowerText);
+                if (score >= 0) {
+                    scores.put(key, score);
+                }
+            }
+            return List.of(scores.keySet().stream()
+                    .sorted(Comparator.comparing((String key) -> scores.get(key))
+                            .thenComparing(String::length)
+                            .thenComparing(Comparator.naturalOrder()))
+                    .toList());
+        }
+
+        /** The lower score is better, the negative value means: no match */
+        private int score(String key, String text, String lowerText) {
+            if (key.startsWith(text)) {
+                return key.length() == text.length() ? 0 : 1;
+            }
+            var lowerKey = key.toLowerCase(Locale.ENGLISH);
+            if (lowerKey.startsWith(lowerText)) {
+                return 2;
+            }
+            var index = lowerKey.indexOf(lowerText);
+            if (index >= 0) {
+                return 3 + index;
+            }
+            var first = -1;
+            var last = -1;
+            for (int i = 0; i < lowerText.length(); i++) {
+                last = lowerKey.indexOf(lowerText.charAt(i), last + 1);
+                if (last < 0) {
+                    return -1;
+                }
+                if (first < 0) {
+                    first = last;
+                }
+            }
+            return 1000 + (last - first) + first; // A compact and an early subsequence wins
+        }
+    }
+
+    /** A prefix tree of path names with keys of directories */
+    static final class PathTree {
+        private final Map<String, PathTree> children = new HashMap<>();
+        private final List<String> keys = List.of();
+
+        /** Add the key of the absolute path, the root is the first name */
+        void add(Path path, String key) {
+            var node = path.getRoot() != null ? child(path.getRoot().toString()) : this;
+            for (var name : path) {
+                node = node.child(name.toString());
+            }
+            node.keys.add(key);
+        }
+
+        private PathTree child(String name) {
+            return children.computeIfAbsent(name, n -> new PathTree());
+        }
+
+        /** Collect keys of subtrees of the query paths by a single walk of both trees.
+         * @param query A tree where a node with a key marks a searched directory */
+        void collect(PathTree query, Collection<String> result) {
+            if (!query.keys.isEmpty()) {
+                collectAll(result);
+                return;
+            }
+            query.children.forEach((name, queryChild) -> {
+                var child = children.get(name);
+                if (child != null) {
+                    child.collect(queryChild, result);
+                }
+            });
+        }
+
+        private void collectAll(Collection<String> result) {
+            result.addAll(keys);
+            children.values().forEach(child -> child.collectAll(result));
+        }
+
+        /** Get the canonical path, or the normalized absolute path of a missing directory */
+        static Path realPath(Path path) {
+            try {
+                return path.toRealPath();
+            } catch (IOException | SecurityException e) {
+                return path.toAbsolutePath().normalize();
+            }
+        }
+    }
+
+    /** Usage statistics of bookmarks for the frecency ranking (a frequency weighted by the recency).
+     * Hits are collected in the memory and appended to a sidecar file by a batch as lines: {@code key\tcount\tlastAccess},
+     * the file is compacted to one line per key when its size exceeds the limit. */
+    static final class Usage {
+        /** Maximal count of collected hits before a batch write of the daemon */
+        private static final int BATCH_SIZE = 32;
+        /** Maximal age of collected hits in seconds before a batch write of the daemon */
+        private static final long BATCH_AGE = 60L;
+        private final File file;
+        /** The file size limit in bytes, the zero value disables the usage tracking. */
+        long limit;
+        /** Hits not written to the file yet */
+        private final Map<String, Hit> pending = new LinkedHashMap<>();
+        private long pendingSince;
+
+        Usage(File file, long limit) {
+            this.file = file;
+            this.limit = limit;
+        }
+
+        /** Hit count and the last access time in seconds */
+        record Hit(int count, long lastAccess) {
+            Hit add(Hit hit) {
+                return new Hit(count + hit.count, Math.max(lastAccess, hit.lastAccess));
+            }
+
+            /** The count weighted by the age of the last access */
+            double score(long now) {
+                var age = now - lastAccess;
+                return count * (age < 3_600L ? 4.0 : age < 86_400L ? 2.0 : age < 604_800L ? 0.5 : 0.25);
+            }
+        }
+
+        static long now() {
+            return System.currentTimeMillis() / 1000L;
+        }
+
+        /** Collect a hit of the key without any file access */
+        synchronized void record(String key) {
+            if (limit > 0L) {
+                if (pending.isEmpty()) {
+                    pendingSince = now();
+                }
+                pending.merge(key, new Hit(1, now()), Hit::add);
+            }
+        }
+
+        synchronized boolean isBatchReady() {
+            return !pending.isEmpty() && (pending.size() >= BATCH_SIZE || now() - pendingSince >= BATCH_AGE);
+        }
+
+        synchronized void clear() {
+            pending.clear();
+        }
+
+        /** Get hits of the file including the collected hits */
+        synchronized Map<String, Hit> hits() {
+            var result = new HashMap<String, Hit>();
+            if (file.isFile()) {
+                try {
+                    read(Files.readString(file.toPath(), Charset.defaultCharset()), result);
+                } catch (IOException e) {
+                    throw new IllegalStateException(file.toString(), e);
+                }
+            }
+            pending.forEach((key, hit) -> result.merge(key, hit, Hit::add));
+            return result;
+        }
+
+        /** Append the collected hits to the file and compact the file over the limit.
+         * @param isBookmark Keys kept by the compaction */
+        synchronized void flush(Predicate<String> isBookmark) throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            FILE_LOCK.lock();
+            try (var channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                var lock = channel.lock();
+                try {
+                    channel.write(ByteBuffer.wrap(format(pending).getBytes(Charset.defaultCharset())), channel.size());
+                    if (channel.size() > limit) {
+                        var buffer = ByteBuffer.allocate((int) channel.size());
+                        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+                            // Read the whole file
+                        }
+                        var hits = new LinkedHashMap<String, Hit>();
+                        read(new String(buffer.array(), 0, buffer.position(), Charset.defaultCharset()), hits);
+                        hits.keySet().removeIf(isBookmark.negate());
+                        var compacted = format(hits).getBytes(Charset.defaultCharset());
+                        channel.write(ByteBuffer.wrap(compacted), 0L);
+                        channel.truncate(compacted.length);
+                    }
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                FILE_LOCK.unlock();
+            }
+            pending.clear();
+        }
+
+        /** Add complete and valid lines of the text to the result */
+        private void read(String text, Map<String, Hit> result) {
+            text.substring(0, text.lastIndexOf('\n') + 1).lines().forEach(line -> {
+                var items = line.split("\t");
+                if (items.length == 3) {
+                    try {
+                        result.merge(items[0], new Hit(Integer.parseInt(items[1]), Long.parseLong(items[2])), Hit::add);
+                    } catch (NumberFormatException e) {
+                        // An invalid line is ignored
+                    }
+                }
+            });
+        }
+
+        private String format(Map<String, Hit> hits) {
+            var result = new StringBuilder();
+            hits.forEach((key, hit) -> result.append(key).append('\t')
+                    .append(hit.count()).append('\t')
+                    .append(hit.lastAccess()).append('\n'));
+            return result.toString();
+        }
+    }
+
+    /** A binary snapshot of the store file for a lookup without the CSV parsing.
+     * The file contains a header, a table of record offsets sorted by the key and the records,
+     * so the lookup is a binary search in the memory-mapped file.
+     * The snapshot is valid for the same modification time and size of the store file only,
+     * records of the journal since the snapshot are not included. */
+    static final class Snapshot {
+        private static final int MAGIC = 0x44424B32; // DBK2
+        private static final int HEADER_SIZE = 4 + 8 + 8 + 8 + 4;
+        private final ByteBuffer buffer;
+        private final int count;
+
+        private Snapshot(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.count = buffer.getInt(HEADER_SIZE - 4);
+        }
+
+        /** Open a valid snapshot or return {@code null}.
+         * @param mapped Map the file to the memory, the mapped file can't be replaced on Windows. */
+        static Snapshot open(File snapshotFile, File storeFile, File journalFile, boolean mapped) {
+            if (!snapshotFile.isFile()) {
+                return null;
+            }
+            try (var channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+                var size = channel.size();
+                if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                    return null;
+                }
+                var buffer = mapped
+                        ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                        : ByteBuffer.wrap(Files.readAllBytes(snapshotFile.toPath()));
+                if (buffer.getInt(0) != MAGIC) {
+                    return null;
+                }
+                var result = new Snapshot(buffer);
+                return result.isValid(storeFile, journalFile) ? result : null;
+            } catch (IOException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        /** Is the snapshot valid for the current state of the store file? */
+        boolean isValid(File storeFile, File journalFile) {
+            return buffer.getLong(4) == storeFile.lastModified()
+                    && buffer.getLong(12) == storeFile.length()
+                    && journalLength() <= journalFile.length();
+        }
+
+        /** Size of the journal included in the snapshot */
+        long journalLength() {
+            return buffer.getLong(20);
+        }
+
+        /** Get the line of the key or {@code null} */
+        String line(String key) {
+            int low = 0, high = count - 1;
+            while (low <= high) {
+                var middle = (low + high) >>> 1;
+                var position = buffer.getInt(HEADER_SIZE + 4 * middle);
+                var cmp = string(position).compareTo(key);
+                if (cmp < 0) {
+                    low = middle + 1;
+                } else if (cmp > 0) {
+                    high = middle - 1;
+                } else {
+                    return string(position + 4 + buffer.getInt(position));
+                }
+            }
+            return null;
+        }
+
+        /** Get all keys in the sorted order */
+        List<String> keys() {
+            var result = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(string(buffer.getInt(HEADER_SIZE + 4 * i)));
+            }
+            return List.of(result);
+        }
+
+        /** Get all lines in the order of keys */
+        List<String> lines() {
+            var result = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                var position = buffer.getInt(HEADER_SIZE + 4 * i);
+                result.add(string(position + 4 + buffer.getInt(position)));
+            }
+            return List.of(result);
+        }
+
+        private String string(int position) {
+            var bytes = new byte[buffer.getInt(position)];
+            buffer.get(position + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /** Write records of the store file state by a temporary file */
+        static void write(File snapshotFile, File storeFile, long lastModified, long length, long journalLength,
+                          Collection<BookmarkStore.Entry> entries) throws IOException {
+            var sorted = entries.stream()
+                    .sorted(Comparator.comparing(BookmarkStore.Entry::key))
+                    .map(e -> new byte[][]{e.key().getBytes(StandardCharsets.UTF_8), e.line().getBytes(StandardCharsets.UTF_8)})
+                    .toList();
+            var tempFile = File.createTempFile(".dirbook", ".temp", storeFile.getParentFile());
+            try {
+                try (var os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                    os.writeInt(MAGIC);
+                    os.writeLong(lastModified);
+                    os.writeLong(length);
+                    os.writeLong(journalLength);
+                    os.writeInt(sorted.size());
+                    var position = HEADER_SIZE + 4 * sorted.size();
+                    for (var record : sorted) {
+                        os.writeInt(position);
+                        position += 8 + record[0].length + record[1].length;
+                    }
+                    for (var record : sorted) {
+                        os.writeInt(record[0].length);
+                        os.write(record[0]);
+                        os.writeInt(record[1].length);
+                        os.write(record[1]);
+                    }
+                }
+                Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /** A resident process serving bookmarks from the memory over a Unix domain socket.
+     * A request is one line of tab separated items: the working directory of the client and the arguments.
+     * The response is a status line ({@code 0} for a success, {@code 1} for a failure) followed by the output
+     * of the command or by the error message, so the client can't mistake an error for a directory.
+     * Requests are served one by one, a client that doesn't complete its request or doesn't read the response
+     * in the timeout is dropped, so it can't block other clients. */
+    final class Daemon implements Closeable {
+        /** Commands supported by the daemon */
+        private final Set<String> commands = Set.of("l", "list", "g", "get", "s", "save",
+                "d", "delete", "r", "remove", "b", "bookmarks", "w", "within", "a", "complete", "j", "jump", "t", "top");
+        /** The maximal size of a request in bytes */
+        private static final int REQUEST_LIMIT = 1 << 16;
+        private final Path socket;
+        private final ServerSocketChannel server;
+        /** A timeout for reading the request and for writing the response */
+        Duration timeout = Duration.ofSeconds(2);
+
+        Daemon(Path socket) throws IOException {
+            this.socket = socket;
+            var address = UnixDomainSocketAddress.of(socket);
+            if (Files.exists(socket)) {
+                if (isListening(address)) {
+                    throw new IllegalStateException("The daemon is running already: " + socket);
+                }
+                Files.delete(socket); // An obsolete socket
+            }
+            this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(address);
+        }
+
+        private boolean isListening(UnixDomainSocketAddress address) {
+            try (var channel = SocketChannel.open(address)) {
+                return channel.isConnected();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /** Serve requests until the daemon is closed */
+        void run() throws IOException {
+            while (server.isOpen()) {
+                try (var channel = server.accept(); var selector = Selector.open()) {
+                    channel.configureBlocking(false);
+                    serve(channel.register(selector, SelectionKey.OP_READ));
+                } catch (AsynchronousCloseException e) {
+                    break;
+                } catch (IOException e) {
+                    // A timeout or a failure of the client, the client is dropped
+                }
+                store.flushUsage(false);
+            }
+        }
+
+        /** Serve the request of the non-blocking channel of the key */
+        private void serve(SelectionKey key) throws IOException {
+            var items = readRequest(key).split("\t", -1);
+            var args = List.of(Arrays.copyOfRange(items, 1, items.length));
+            var statement = args.getFirst("");
+            var result = new ByteArrayOutputStream();
+            var status = 0;
+            try (var resultStream = new PrintStream(result, false, StandardCharsets.UTF_8)) {
+                if (items[0].isEmpty() || !commands.contains(statement.startsWith("-") ? statement.substring(1) : statement)) {
+                    throw new IllegalArgumentException("Unsupported request: " + String.join(" ", args));
+                }
+                new DirectoryBookmarks(DirectoryBookmarks.this, items[0], resultStream).mainRun(args);
+            } catch (Exception e) {
+                status = 1; // The output of a failed command is an error report
+                if (e.getMessage() != null && !e.getMessage().isEmpty()) {
+                    result.writeBytes((e.getMessage() + newLine).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            var response = new ByteArrayOutputStream(result.size() + 3);
+            response.writeBytes((status + newLine).getBytes(StandardCharsets.UTF_8));
+            result.writeTo(response);
+            writeResponse(key, ByteBuffer.wrap(response.toByteArray()));
+        }
+
+        /** Read the first line of the request */
+        private String readRequest(SelectionKey key) throws IOException {
+            var channel = (SocketChannel) key.channel();
+            var deadline = System.nanoTime() + timeout.toNanos();
+            var request = new ByteArrayOutputStream();
+            var buffer = ByteBuffer.allocate(1024);
+            var end = -1;
+            while (end < 0) {
+                await(key, SelectionKey.OP_READ, deadline);
+                var count = channel.read(buffer.clear());
+                if (count < 0) {
+                    break;
+                }
+                for (int i = 0; i < count && end < 0; i++) {
+                    if (buffer.get(i) == '\n') {
+                        end = request.size() + i;
+                    }
+                }
+                request.write(buffer.array(), 0, count);
+                if (request.size() > REQUEST_LIMIT) {
+                    throw new IOException("The request is too long");
+                }
+            }
+            var result = request.toByteArray();
+            return new String(result, 0, end >= 0 ? end : result.length, StandardCharsets.UTF_8);
+        }
+
+        private void writeResponse(SelectionKey key, ByteBuffer response) throws IOException {
+            var channel = (SocketChannel) key.channel();
+            var deadline = System.nanoTime() + timeout.toNanos();
+            channel.write(response);
+            while (response.hasRemaining()) {
+                await(key, SelectionKey.OP_WRITE, deadline);
+                channel.write(response);
+            }
+        }
+
+        /** Wait for the operation of the channel until the deadline */
+        private void await(SelectionKey key, int operation, long deadline) throws IOException {
+            key.interestOps(operation);
+            var millis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (millis <= 0L || key.selector().select(millis) == 0) {
+                throw new InterruptedByTimeoutException();
+            }
+            key.selector().selectedKeys().clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            store.flushUsage(true);
+            Files.deleteIfExists(socket);
+        }
+    }
+
     //  ~ ~ ~ ~ ~ ~ ~ UTILITIES ~ ~ ~ ~ ~ ~ ~
 
     class Utilities {
@@ -429,6 +1496,38 @@ public final class DirectoryBookmarks {
 
             // Delete all classes:
             deleteClasses(classFiles);
+            createSharedArchive(jarFile);
+        }
+
+        /** Create a class data sharing archive (AppCDS) of classes loaded by listing a temporary store,
+         * the archive is used by the generated shell functions. */
+        private void createSharedArchive(String jarFile) throws IOException, InterruptedException {
+            var javaExe = "%s/bin/java".formatted(System.getProperty("java.home"));
+            var archive = jarFile.substring(0, jarFile.lastIndexOf('.')) + ".jsa";
+            var home = Files.createTempDirectory(appName);
+            try {
+                Files.writeString(home.resolve(storeName.getName()), "sample" + cellSeparator + homeDirMark + newLine);
+                var arguments = List.of(javaExe, "-XX:ArchiveClassesAtExit=" + archive);
+                arguments.addAll(List.of(startupOptions.split(" ")));
+                arguments.addAll(List.of("-Duser.home=" + home, "-jar", jarFile, "l"));
+                var process = new ProcessBuilder(arguments)
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                if (process.waitFor() != 0) {
+                    throw new IllegalStateException("The archive was not created: " + archive);
+                }
+            } finally {
+                try (var files = Files.walk(home)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+                }
+            }
+        }
+
+        /** The class data sharing archive next to the running JAR file */
+        private File sharedArchive() {
+            var path = getPathOfRunningApplication();
+            return new File(isJar() ? path.substring(0, path.length() - 4) + ".jsa" : "");
         }
 
         private String getScriptDir() {
@@ -477,16 +1576,18 @@ public final class DirectoryBookmarks {
             return System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("win");
         }
 
+        /** Get class files of the class including all nested classes */
         private List<String> getAllClassFiles(Class<?> mainClass) {
             final var result = new ArrayList<String>();
-            final var suffix = ".class";
-            result.add(mainClass.getSimpleName() + suffix);
-            Stream.of(mainClass.getDeclaredClasses())
-                    .map(c -> mainClass.getSimpleName() + '$' + c.getSimpleName() + suffix)
-                    .forEach(result::add);
+            addClassFiles(mainClass, mainClass.getPackageName(), result);
             return List.of(result);
         }
 
+        private void addClassFiles(Class<?> clazz, String packageName, Collection<String> result) {
+            result.add(clazz.getName().substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + ".class");
+            Stream.of(clazz.getDeclaredClasses()).forEach(c -> addClassFiles(c, packageName, result));
+        }
+
         private void download() throws IOException, InterruptedException {
             var client = HttpClient.newHttpClient();
             var request = HttpRequest.newBuilder()
@@ -508,6 +1609,100 @@ public final class DirectoryBookmarks {
         }
     }
 
+    /** An unsynchronized print stream for a single thread. The text is collected in a buffer
+     * and written to the target stream by a size threshold, by the {@code flush()} or by the JVM exit.
+     * The threshold can be changed by the system property {@code output.buffer}, zero writes every print. */
+    static final class BufferedPrintStream extends PrintStream {
+        private final OutputStream target;
+        private final Charset charset;
+        private final int threshold;
+        private final StringBuilder buffer;
+        private final Formatter formatter;
+
+        BufferedPrintStream(OutputStream target, Charset charset, int threshold) {
+            super(target, false, charset);
+            this.target = target;
+            this.charset = charset;
+            this.threshold = threshold;
+            this.buffer = new StringBuilder(Math.max(threshold, 16) + 256);
+            this.formatter = new Formatter(buffer);
+        }
+
+        /** Create a buffered standard output, the content is flushed by a shutdown hook. */
+        static BufferedPrintStream ofStdout() {
+            final var charset = Optional.ofNullable(System.getProperty("sun.stdout.encoding"))
+                    .map(Charset::forName)
+                    .orElse(Charset.defaultCharset());
+            final var result = new BufferedPrintStream(new FileOutputStream(FileDescriptor.out), charset,
+                    Integer.getInteger("output.buffer", 1 << 16));
+            Runtime.getRuntime().addShutdownHook(new Thread(result::flush));
+            return result;
+        }
+
+        private BufferedPrintStream add(CharSequence text) {
+            buffer.append(text);
+            if (buffer.length() >= threshold) writeBuffer();
+            return this;
+        }
+
+        private void writeBuffer() {
+            if (!buffer.isEmpty()) try {
+                target.write(buffer.toString().getBytes(charset));
+                buffer.setLength(0);
+                if (threshold == 0) target.flush();
+            } catch (IOException e) {
+                setError();
+            }
+        }
+
+        @Override public void print(String s) { add(String.valueOf(s)); }
+        @Override public void print(Object o) { add(String.valueOf(o)); }
+        @Override public void print(char c) { add(String.valueOf(c)); }
+        @Override public void print(char[] s) { add(new String(s)); }
+        @Override public void print(boolean b) { add(String.valueOf(b)); }
+        @Override public void print(int i) { add(String.valueOf(i)); }
+        @Override public void print(long l) { add(String.valueOf(l)); }
+        @Override public void print(float f) { add(String.valueOf(f)); }
+        @Override public void print(double d) { add(String.valueOf(d)); }
+        @Override public void println() { add(System.lineSeparator()); }
+        @Override public void println(String s) { buffer.append(s); println(); }
+        @Override public void println(Object o) { buffer.append(o); println(); }
+        @Override public void println(char c) { buffer.append(c); println(); }
+        @Override public void println(char[] s) { buffer.append(s); println(); }
+        @Override public void println(boolean b) { buffer.append(b); println(); }
+        @Override public void println(int i) { buffer.append(i); println(); }
+        @Override public void println(long l) { buffer.append(l); println(); }
+        @Override public void println(float f) { buffer.append(f); println(); }
+        @Override public void println(double d) { buffer.append(d); println(); }
+        @Override public PrintStream printf(String format, Object... args) { return format(format, args); }
+        @Override public PrintStream printf(Locale l, String format, Object... args) { return format(l, format, args); }
+        @Override public PrintStream format(String format, Object... args) { formatter.format(format, args); return add(""); }
+        @Override public PrintStream format(Locale l, String format, Object... args) { formatter.format(l, format, args); return add(""); }
+        @Override public PrintStream append(CharSequence csq) { return add(String.valueOf(csq)); }
+        @Override public PrintStream append(CharSequence csq, int start, int end) { return add(String.valueOf(csq).subSequence(start, end)); }
+        @Override public PrintStream append(char c) { buffer.append(c); return add(""); }
+
+        @Override public void write(int b) {
+            writeBuffer();
+            super.write(b);
+        }
+
+        @Override public void write(byte[] buf, int off, int len) {
+            writeBuffer();
+            super.write(buf, off, len);
+        }
+
+        @Override public void flush() {
+            writeBuffer();
+            super.flush();
+        }
+
+        @Override public void close() {
+            flush();
+            super.close();
+        }
+    }
+
     /** An extended ArrayList class */
     @SuppressWarnings({"unchecked", "serial"}) // Due obsolete Java 17
     public static final class List<T> extends ArrayList<T> {
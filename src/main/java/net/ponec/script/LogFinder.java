@@ -27,7 +27,7 @@ import java.util.zip.*;
  *
  * See the <a href="https://github.com/pponec/PPScriptsForJava/blob/development/src/main/java/net/ponec/script/LogFinder.java">source</a>.
  *
- * @version 2025-05-01
+ * @version 2026-10-18
  */
 public class LogFinder {
 
@@ -53,7 +53,7 @@ public class LogFinder {
     }
 
     public static void main(String[] args) throws IOException {
-        new LogFinder(System.out).run(List.of(args));
+        new LogFinder(BufferedPrintStream.ofStdout()).run(List.of(args));
     }
 
     public void run(List<String> args) throws IOException {
@@ -114,10 +114,10 @@ public class LogFinder {
                 if (!lastSource.equals(sourceName)) {
                     lastSource = sourceName;
                     if (eventCounter++ > 0) out.println();
-                    out.printf("### %s:%s #%s%n", sourceName, firstLine, eventCounter);
+                    out.println("### " + sourceName + ':' + firstLine + " #" + eventCounter);
                 }
                 out.print(buffer.toStringLine());
-                out.printf(">>>%s:%s: %s%n", sourceName, lineCounter, line.trim());
+                out.println(">>>" + sourceName + ':' + lineCounter + ": " + line.trim());
                 buffer.clear();
                 afterCounter = this.afterLines;
             } else if (afterCounter-- > 0) {
@@ -177,6 +177,100 @@ public class LogFinder {
         }
     }
 
+    /** An unsynchronized print stream for a single thread. The text is collected in a buffer
+     * and written to the target stream by a size threshold, by the {@code flush()} or by the JVM exit.
+     * The threshold can be changed by the system property {@code output.buffer}, zero writes every print. */
+    static final class BufferedPrintStream extends PrintStream {
+        private final OutputStream target;
+        private final Charset charset;
+        private final int threshold;
+        private final StringBuilder buffer;
+        private final Formatter formatter;
+
+        BufferedPrintStream(OutputStream target, Charset charset, int threshold) {
+            super(target, false, charset);
+            this.target = target;
+            this.charset = charset;
+            this.threshold = threshold;
+            this.buffer = new StringBuilder(Math.max(threshold, 16) + 256);
+            this.formatter = new Formatter(buffer);
+        }
+
+        /** Create a buffered standard output, the content is flushed by a shutdown hook. */
+        static BufferedPrintStream ofStdout() {
+            final var charset = Optional.ofNullable(System.getProperty("sun.stdout.encoding"))
+                    .map(Charset::forName)
+                    .orElse(Charset.defaultCharset());
+            final var result = new BufferedPrintStream(new FileOutputStream(FileDescriptor.out), charset,
+                    Integer.getInteger("output.buffer", 1 << 16));
+            Runtime.getRuntime().addShutdownHook(new Thread(result::flush));
+            return result;
+        }
+
+        private BufferedPrintStream add(CharSequence text) {
+            buffer.append(text);
+            if (buffer.length() >= threshold) writeBuffer();
+            return this;
+        }
+
+        private void writeBuffer() {
+            if (!buffer.isEmpty()) try {
+                target.write(buffer.toString().getBytes(charset));
+                buffer.setLength(0);
+                if (threshold == 0) target.flush();
+            } catch (IOException e) {
+                setError();
+            }
+        }
+
+        @Override public void print(String s) { add(String.valueOf(s)); }
+        @Override public void print(Object o) { add(String.valueOf(o)); }
+        @Override public void print(char c) { add(String.valueOf(c)); }
+        @Override public void print(char[] s) { add(new String(s)); }
+        @Override public void print(boolean b) { add(String.valueOf(b)); }
+        @Override public void print(int i) { add(String.valueOf(i)); }
+        @Override public void print(long l) { add(String.valueOf(l)); }
+        @Override public void print(float f) { add(String.valueOf(f)); }
+        @Override public void print(double d) { add(String.valueOf(d)); }
+        @Override public void println() { add(System.lineSeparator()); }
+        @Override public void println(String s) { buffer.append(s); println(); }
+        @Override public void println(Object o) { buffer.append(o); println(); }
+        @Override public void println(char c) { buffer.append(c); println(); }
+        @Override public void println(char[] s) { buffer.append(s); println(); }
+        @Override public void println(boolean b) { buffer.append(b); println(); }
+        @Override public void println(int i) { buffer.append(i); println(); }
+        @Override public void println(long l) { buffer.append(l); println(); }
+        @Override public void println(float f) { buffer.append(f); println(); }
+        @Override public void println(double d) { buffer.append(d); println(); }
+        @Override public PrintStream printf(String format, Object... args) { return format(format, args); }
+        @Override public PrintStream printf(Locale l, String format, Object... args) { return format(l, format, args); }
+        @Override public PrintStream format(String format, Object... args) { formatter.format(format, args); return add(""); }
+        @Override public PrintStream format(Locale l, String format, Object... args) { formatter.format(l, format, args); return add(""); }
+        @Override public PrintStream append(CharSequence csq) { return add(String.valueOf(csq)); }
+        @Override public PrintStream append(CharSequence csq, int start, int end) { return add(String.valueOf(csq).subSequence(start, end)); }
+        @Override public PrintStream append(char c) { buffer.append(c); return add(""); }
+
+        @Override public void write(int b) {
+            writeBuffer();
+            super.write(b);
+        }
+
+        @Override public void write(byte[] buf, int off, int len) {
+            writeBuffer();
+            super.write(buf, off, len);
+        }
+
+        @Override public void flush() {
+            writeBuffer();
+            super.flush();
+        }
+
+        @Override public void close() {
+            flush();
+            super.close();
+        }
+    }
+
     /** An extended ArrayList class */
     @SuppressWarnings({"unchecked", "serial"}) // Due an obsolete Java 17
     public static final class List<T> extends ArrayList<T> {
@@ -33,6 +33,7 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -65,7 +66,7 @@ public final class PPUtils {
 
     private final String appName = getClass().getSimpleName();
 
-    private final String appVersion = "1.3.0";
+    private final String appVersion = "1.4.0";
 
     private final Class<?> mainClass = getClass();
 
@@ -93,7 +94,7 @@ public final class PPUtils {
     }
 
     public static void main(final String[] args) throws Exception {
-        new PPUtils(System.out).mainRun(List.of(args));
+        new PPUtils(BufferedPrintStream.ofStdout()).mainRun(List.of(args));
     }
 
     void mainRun(List<String> args) throws Exception {
@@ -251,13 +252,10 @@ public final class PPUtils {
     }
 
     static final class Finder {
-        private static String FILE_PATTEN = "${file}";
         /** @Nullable */
         private final Pattern bodyPattern;
-        /** @NonNull */
-        private final String bodyFormat;
-        /** @NonNull */
-        private final boolean printFileName;
+        /** @Nullable */
+        private final GroupTemplate bodyTemplate;
         /** @Nullable */
         private final Pattern filePattern;
         private final boolean enforcedLinux;
@@ -267,8 +265,7 @@ public final class PPUtils {
         public Finder(Comparator<Path> comparator, Pattern bodyPattern, String bodyFormat, Pattern filePattern, boolean enforcedLinux, PrintStream out) {
             this.pathComparator = comparator;
             this.bodyPattern = bodyPattern;
-            this.bodyFormat = bodyFormat;
-            this.printFileName = bodyFormat.contains(FILE_PATTEN);
+            this.bodyTemplate = bodyFormat.isEmpty() ? null : GroupTemplate.of(bodyFormat, bodyPattern);
             this.filePattern = filePattern;
             this.enforcedLinux = enforcedLinux;
             this.out = out;
@@ -294,22 +291,23 @@ public final class PPUtils {
         }
 
         public boolean grep(Path file, boolean printLine) {
-            try (final var validLineStream = Files
-                    .lines(file, utf8)
-                    .filter(line -> bodyPattern == null || bodyPattern.matcher(line).find())
-            ) {
-                if (printLine) {
-                    validLineStream.forEach(line -> {
-                        if (bodyFormat.isEmpty()) {
-                            out.printf("%s%s%s%n", formatFileName(file), grepSeparator, line.trim());
-                        } else {
-                            var format = printFileName
-                                    ? bodyFormat.replace(FILE_PATTEN, formatFileName(file))
-                                    : bodyFormat;
-                            out.println(formatGroupText(line.trim(), format));
+            final var matcher = bodyPattern != null ? bodyPattern.matcher("") : null;
+            try (final var lineStream = Files.lines(file, utf8)) {
+                if (printLine && bodyTemplate != null) {
+                    final var fileName = formatFileName(file);
+                    lineStream.forEach(line -> {
+                        if (matcher.reset(line.trim()).find()) {
+                            out.println(bodyTemplate.format(matcher, fileName));
                         }
                     });
                     return false;
+                }
+                final var validLineStream = lineStream
+                        .filter(line -> matcher == null || matcher.reset(line).find());
+                if (printLine) {
+                    validLineStream.forEach(line ->
+                            out.println(formatFileName(file) + grepSeparator + line.trim()));
+                    return false;
                 } else {
                     return validLineStream.findFirst().isPresent();
                 }
@@ -320,19 +318,6 @@ public final class PPUtils {
             }
         }
 
-        private String formatGroupText(String line, String bodyFormat) {
-            final var matcher = bodyPattern.matcher(line);
-            if (matcher.find()) {
-                var groups = new Object[matcher.groupCount()];
-                for (int i = 0; i < groups.length; i++) {
-                    groups[i] = matcher.group(i + 1);
-                }
-                return bodyFormat.formatted(groups);
-            } else {
-                return "";
-            }
-        }
-
         /** Method supports a GitBash shell. */
         private String formatFileName(Path path) {
             return enforcedLinux
@@ -341,6 +326,100 @@ public final class PPUtils {
         }
     }
 
+    /** The {@code grepf} output template compiled to literals and group references.
+     * Supported are the {@code %s}, {@code %N$s}, {@code %%}, {@code %n} and {@code ${file}} items,
+     * other format specifiers are processed by the {@link String#formatted(Object...)} method. */
+    static final class GroupTemplate {
+        private static final String FILE_ITEM = "${file}";
+        private static final int FILE_GROUP = -1;
+        /** Literals, the last one follows the last reference. */
+        private final String[] literals;
+        /** Group references, the value {@code FILE_GROUP} means a file name. */
+        private final int[] groups;
+        /** Format for the {@link String#formatted(Object...)} method or {@code null}. */
+        private final String format;
+        private final StringBuilder buffer = new StringBuilder(128);
+
+        private GroupTemplate(String[] literals, int[] groups, String format) {
+            this.literals = literals;
+            this.groups = groups;
+            this.format = format;
+        }
+
+        /** Parse the format once, the result is not thread safe. */
+        static GroupTemplate of(String format, Pattern pattern) {
+            final var groupCount = pattern != null ? pattern.matcher("").groupCount() : 0;
+            final var literals = new ArrayList<String>();
+            final var groups = new ArrayList<Integer>();
+            final var literal = new StringBuilder();
+            var ordinaryIndex = 0;
+            for (int i = 0; i < format.length(); i++) {
+                final var c = format.charAt(i);
+                var group = 0;
+                if (format.startsWith(FILE_ITEM, i)) {
+                    group = FILE_GROUP;
+                    i += FILE_ITEM.length() - 1;
+                } else if (c != '%') {
+                    literal.append(c);
+                    continue;
+                } else if (format.startsWith("%%", i)) {
+                    literal.append('%');
+                    i++;
+                    continue;
+                } else if (format.startsWith("%n", i)) {
+                    literal.append(System.lineSeparator());
+                    i++;
+                    continue;
+                } else if (format.startsWith("%s", i)) {
+                    group = ++ordinaryIndex;
+                    i++;
+                } else {
+                    final var end = format.indexOf("$s", i);
+                    final var index = end > i + 1 && format.substring(i + 1, end).chars().allMatch(Character::isDigit)
+                            ? Integer.parseInt(format.substring(i + 1, end)) : 0;
+                    if (index == 0) {
+                        return new GroupTemplate(null, null, format);
+                    }
+                    group = index;
+                    i = end + 1;
+                }
+                if (group > groupCount) {
+                    return new GroupTemplate(null, null, format);
+                }
+                literals.add(literal.toString());
+                groups.add(group);
+                literal.setLength(0);
+            }
+            literals.add(literal.toString());
+            return new GroupTemplate(
+                    literals.toArray(String[]::new),
+                    groups.stream().mapToInt(Integer::intValue).toArray(),
+                    null);
+        }
+
+        /** Format groups of the last match */
+        String format(Matcher matcher, String fileName) {
+            if (format != null) {
+                final var args = new Object[matcher.groupCount()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = matcher.group(i + 1);
+                }
+                return format.replace(FILE_ITEM, fileName).formatted(args);
+            }
+            buffer.setLength(0);
+            for (int i = 0; i < groups.length; i++) {
+                buffer.append(literals[i]);
+                final var group = groups[i];
+                if (group == FILE_GROUP) {
+                    buffer.append(fileName);
+                } else {
+                    buffer.append(matcher.group(group));
+                }
+            }
+            return buffer.append(literals[groups.length]).toString();
+        }
+    }
+
     /** Compare files by a name, the directory last */
     static class DirLastComparator implements Comparator<Path> {
         @Override
@@ -365,7 +444,7 @@ public final class PPUtils {
                 files = readFiles(files.get(1, ""));
             }
             build(Path.of(archiveFile), findInnerFiles(files));
-            System.out.printf("%s: The archive was created in file: %s%n", PPUtils.class.getSimpleName(), archiveFile);
+            out.printf("%s: The archive was created in file: %s%n", PPUtils.class.getSimpleName(), archiveFile);
         }
 
         public Set<Path> findInnerFiles(List<String> items) {
@@ -515,10 +594,107 @@ public final class PPUtils {
         }
     }
 
+    /** An unsynchronized print stream for a single thread. The text is collected in a buffer
+     * and written to the target stream by a size threshold, by the {@code flush()} or by the JVM exit.
+     * The threshold can be changed by the system property {@code output.buffer}, zero writes every print. */
+    static final class BufferedPrintStream extends PrintStream {
+        private final OutputStream target;
+        private final Charset charset;
+        private final int threshold;
+        private final StringBuilder buffer;
+        private final Formatter formatter;
+
+        BufferedPrintStream(OutputStream target, Charset charset, int threshold) {
+            super(target, false, charset);
+            this.target = target;
+            this.charset = charset;
+            this.threshold = threshold;
+            this.buffer = new StringBuilder(Math.max(threshold, 16) + 256);
+            this.formatter = new Formatter(buffer);
+        }
+
+        /** Create a buffered standard output, the content is flushed by a shutdown hook. */
+        static BufferedPrintStream ofStdout() {
+            final var charset = Optional.ofNullable(System.getProperty("sun.stdout.encoding"))
+                    .map(Charset::forName)
+                    .orElse(Charset.defaultCharset());
+            final var result = new BufferedPrintStream(new FileOutputStream(FileDescriptor.out), charset,
+                    Integer.getInteger("output.buffer", 1 << 16));
+            Runtime.getRuntime().addShutdownHook(new Thread(result::flush));
+            return result;
+        }
+
+        private BufferedPrintStream add(CharSequence text) {
+            buffer.append(text);
+            if (buffer.length() >= threshold) writeBuffer();
+            return this;
+        }
+
+        private void writeBuffer() {
+            if (!buffer.isEmpty()) try {
+                target.write(buffer.toString().getBytes(charset));
+                buffer.setLength(0);
+                if (threshold == 0) target.flush();
+            } catch (IOException e) {
+                setError();
+            }
+        }
+
+        @Override public void print(String s) { add(String.valueOf(s)); }
+        @Override public void print(Object o) { add(String.valueOf(o)); }
+        @Override public void print(char c) { add(String.valueOf(c)); }
+        @Override public void print(char[] s) { add(new String(s)); }
+        @Override public void print(boolean b) { add(String.valueOf(b)); }
+        @Override public void print(int i) { add(String.valueOf(i)); }
+        @Override public void print(long l) { add(String.valueOf(l)); }
+        @Override public void print(float f) { add(String.valueOf(f)); }
+        @Override public void print(double d) { add(String.valueOf(d)); }
+        @Override public void println() { add(System.lineSeparator()); }
+        @Override public void println(String s) { buffer.append(s); println(); }
+        @Override public void println(Object o) { buffer.append(o); println(); }
+        @Override public void println(char c) { buffer.append(c); println(); }
+        @Override public void println(char[] s) { buffer.append(s); println(); }
+        @Override public void println(boolean b) { buffer.append(b); println(); }
+        @Override public void println(int i) { buffer.append(i); println(); }
+        @Override public void println(long l) { buffer.append(l); println(); }
+        @Override public void println(float f) { buffer.append(f); println(); }
+        @Override public void println(double d) { buffer.append(d); println(); }
+        @Override public PrintStream printf(String format, Object... args) { return format(format, args); }
+        @Override public PrintStream printf(Locale l, String format, Object... args) { return format(l, format, args); }
+        @Override public PrintStream format(String format, Object... args) { formatter.format(format, args); return add(""); }
+        @Override public PrintStream format(Locale l, String format, Object... args) { formatter.format(l, format, args); return add(""); }
+        @Override public PrintStream append(CharSequence csq) { return add(String.valueOf(csq)); }
+        @Override public PrintStream append(CharSequence csq, int start, int end) { return add(String.valueOf(csq).subSequence(start, end)); }
+        @Override public PrintStream append(char c) { buffer.append(c); return add(""); }
+
+        @Override public void write(int b) {
+            writeBuffer();
+            super.write(b);
+        }
+
+        @Override public void write(byte[] buf, int off, int len) {
+            writeBuffer();
+            super.write(buf, off, len);
+        }
+
+        @Override public void flush() {
+            writeBuffer();
+            super.flush();
+        }
+
+        @Override public void close() {
+            flush();
+            super.close();
+        }
+    }
+
     //  ~ ~ ~ ~ ~ ~ ~ UTILITIES ~ ~ ~ ~ ~ ~ ~
 
     class Utilities {
 
+        /** JVM options of the launcher for a fast start of a short process, the class data sharing archive is used together */
+        private final String startupOptions = "-XX:TieredStopAtLevel=1 -XX:+UseSerialGC -XX:-UsePerfData";
+
         /** Compile the script and build it to the executable JAR file */
         private void compile() throws Exception {
             if (isJar()) {
@@ -557,6 +733,48 @@ public final class PPUtils {
 
             // Delete all classes:
             deleteClasses(classFiles);
+            var archive = createSharedArchive(jarFile);
+            var launcher = createLauncher(jarFile, archive);
+            out.printf("The %s launcher was created: %s%n", appName, launcher);
+        }
+
+        /** Create a class data sharing archive (AppCDS) of classes loaded by the find command of a temporary directory */
+        private String createSharedArchive(String jarFile) throws IOException, InterruptedException {
+            var javaExe = "%s/bin/java".formatted(System.getProperty("java.home"));
+            var archive = jarFile.substring(0, jarFile.lastIndexOf('.')) + ".jsa";
+            var dir = Files.createTempDirectory(appName);
+            try {
+                Files.writeString(dir.resolve("Sample.java"), "public class Sample {}\n");
+                var arguments = List.of(javaExe, "-XX:ArchiveClassesAtExit=" + archive);
+                arguments.addAll(List.of(startupOptions.split(" ")));
+                arguments.addAll(List.of("-jar", jarFile, "find", dir.toString(), "class", "\\.java$"));
+                var process = new ProcessBuilder(arguments)
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                if (process.waitFor() != 0) {
+                    throw new IllegalStateException("The archive was not created: " + archive);
+                }
+            } finally {
+                try (var files = Files.walk(dir)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+                }
+            }
+            return archive;
+        }
+
+        /** Create a shell script running the JAR file with the class data sharing archive */
+        private Path createLauncher(String jarFile, String archive) throws IOException {
+            var java = Path.of(System.getProperty("java.home"), "bin", "java");
+            var options = "-XX:SharedArchiveFile=\"%s\" %s -jar \"%s\"".formatted(
+                    Path.of(archive).toAbsolutePath(), startupOptions, Path.of(jarFile).toAbsolutePath());
+            var windows = isSystemMsWindows();
+            var result = Path.of(jarFile.substring(0, jarFile.lastIndexOf('.')) + (windows ? ".cmd" : ".sh"));
+            Files.writeString(result, windows
+                    ? "@\"%s\" %s %%*\r\n".formatted(java, options)
+                    : "#!/bin/sh\nexec \"%s\" %s \"$@\"\n".formatted(java, options));
+            result.toFile().setExecutable(true);
+            return result;
         }
 
         private String getScriptDir() {
@@ -606,16 +824,18 @@ public final class PPUtils {
             return System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("win");
         }
 
+        /** Get class files of the class including all nested classes */
         private List<String> getAllClassFiles(Class<?> mainClass) {
             final var result = List.<String>of(Collections.emptyList());
-            final var suffix = ".class";
-            result.add(mainClass.getSimpleName() + suffix);
-            Stream.of(mainClass.getDeclaredClasses())
-                    .map(c -> mainClass.getSimpleName() + '$' + c.getSimpleName() + suffix)
-                    .forEach(result::add);
+            addClassFiles(mainClass, mainClass.getPackageName(), result);
             return result;
         }
 
+        private void addClassFiles(Class<?> clazz, String packageName, Collection<String> result) {
+            result.add(clazz.getName().substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + ".class");
+            Stream.of(clazz.getDeclaredClasses()).forEach(c -> addClassFiles(c, packageName, result));
+        }
+
         private void download() throws IOException, InterruptedException {
             var client = HttpClient.newHttpClient();
             var request = HttpRequest.newBuilder()
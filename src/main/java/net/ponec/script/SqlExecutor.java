@@ -7,9 +7,33 @@
  */
 package net.ponec.script;
 
+import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Cleaner;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.RecordComponent;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Matcher;
@@ -19,13 +43,42 @@ import java.util.stream.StreamSupport;
 
 /** Use SQL statements by the SqlParamBuilder class. */
 public final class SqlExecutor {
-    private final static ConnectionProvider db = ConnectionProvider.forH2("user", "pwd");
+    private final static ConnectionPool db = ConnectionProvider.forH2("user", "pwd").pool(4);
     private final static LocalDate someDate = LocalDate.parse("2020-09-24");
 
     public static void main(final String[] args) throws Exception {
         System.out.println("Arguments: " + List.of(args));
-        try (var dbConnection = db.connection()) {
-            new SqlExecutor().mainStart(dbConnection);
+        try (db; var dbConnection = db.connection()) {
+            if (args.length == 0) {
+                new SqlExecutor().mainStart(dbConnection);
+            } else {
+                new SqlExecutor().mainCommand(dbConnection, args);
+            }
+        }
+    }
+
+    /** Export or import data in the CSV or NDJSON format. */
+    void mainCommand(Connection dbConnection, String... args) throws Exception {
+        if (args.length < 4) {
+            throw new IllegalArgumentException("Usage: (export|import) (csv|ndjson) file (sql|table)");
+        }
+        final var format = DataTransfer.Format.valueOf(args[1].toUpperCase(Locale.ROOT));
+        final var file = Path.of(args[2]);
+        try (var builder = new SqlParamBuilder(dbConnection)) {
+            final var rows = switch (args[0]) {
+                case "export" -> {
+                    try (var writer = Files.newBufferedWriter(file)) {
+                        yield DataTransfer.export(builder.sql(args[3]), format, writer);
+                    }
+                }
+                case "import" -> {
+                    try (var reader = Files.newBufferedReader(file)) {
+                        yield DataTransfer.importData(builder, args[3], format, reader, 1_000);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown command: " + args[0]);
+            };
+            System.out.printf("# %s of %s rows finished%n", args[0], rows);
         }
     }
 
@@ -107,6 +160,11 @@ public final class SqlExecutor {
             }
         }
 
+        /** Creates a connection pool with default timeouts. */
+        ConnectionPool pool(int maxSize) {
+            return new ConnectionPool(this, maxSize, Duration.ofSeconds(30), Duration.ofMinutes(10), Duration.ofMinutes(30));
+        }
+
         public static ConnectionProvider forH2(String user, String passwd) {
             return new ConnectionProvider("org.h2.Driver",
                     "jdbc:h2:mem:test;DB_CLOSE_DELAY=-1",
@@ -114,18 +172,891 @@ public final class SqlExecutor {
         }
     }
 
+    /** A bounded connection pool without the {@code synchronized} blocks. The returned connection
+     * is returned to the pool by the {@code close()} method. Connections are validated on borrow,
+     * and discarded after the idle timeout or the max lifetime. */
+    static final class ConnectionPool implements AutoCloseable {
+        private static final int VALIDATION_TIMEOUT_SEC = 5;
+        private final ConnectionProvider provider;
+        private final int maxSize;
+        private final long maxWaitNanos;
+        private final long maxIdleNanos;
+        private final long maxLifetimeNanos;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+        /** Idle connections, the most recently used first */
+        private final Deque<Entry> idle = new ArrayDeque<>();
+        private final LongAdder borrowed = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong waitNanosMax = new AtomicLong();
+        private int size = 0;
+        private boolean closed = false;
+
+        ConnectionPool(ConnectionProvider provider, int maxSize, Duration maxWait, Duration maxIdle, Duration maxLifetime) {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+            }
+            this.provider = provider;
+            this.maxSize = maxSize;
+            this.maxWaitNanos = maxWait.toNanos();
+            this.maxIdleNanos = maxIdle.toNanos();
+            this.maxLifetimeNanos = maxLifetime.toNanos();
+        }
+
+        /** Borrows a valid connection, or creates a new one if the pool is not full.
+         * @throws SQLTimeoutException If no connection is available within the max wait time. */
+        public Connection connection() throws SQLException {
+            final var start = System.nanoTime();
+            while (true) {
+                final var entry = reserve(start + maxWaitNanos);
+                if (entry == null) {
+                    Connection connection = null;
+                    try {
+                        connection = provider.connection();
+                        return borrow(new Entry(connection, System.nanoTime()), start);
+                    } catch (SQLException | RuntimeException e) {
+                        if (connection != null) {
+                            try {
+                                connection.close();
+                            } catch (SQLException suppressed) {
+                                e.addSuppressed(suppressed);
+                            }
+                        }
+                        discard(null);
+                        throw e;
+                    }
+                }
+                if (isAlive(entry, System.nanoTime()) && isValid(entry)) {
+                    return borrow(entry, start);
+                }
+                discard(entry);
+            }
+        }
+
+        /** A failed validation means an invalid connection */
+        private static boolean isValid(Entry entry) {
+            try {
+                return entry.connection.isValid(VALIDATION_TIMEOUT_SEC);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /** Returns an idle connection or {@code null} for a reserved slot of a new connection. */
+        private Entry reserve(long deadline) throws SQLException {
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("The connection pool is closed");
+                    }
+                    if (!idle.isEmpty()) {
+                        return idle.pollFirst();
+                    }
+                    if (size < maxSize) {
+                        size++;
+                        return null;
+                    }
+                    final var remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLTimeoutException("No free connection in %s ms".formatted(maxWaitNanos / 1_000_000));
+                    }
+                    released.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Waiting for a connection was interrupted", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Connection borrow(Entry entry, long start) {
+            final var wait = System.nanoTime() - start;
+            borrowed.increment();
+            waitNanos.add(wait);
+            waitNanosMax.accumulateAndGet(wait, Math::max);
+            final var returned = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            if (returned.compareAndSet(false, true)) {
+                                release(entry);
+                            }
+                            yield null;
+                        }
+                        case "isClosed" -> returned.get() || entry.connection.isClosed();
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "toString" -> "Pooled:" + entry.connection;
+                        default -> {
+                            if (returned.get()) {
+                                throw new SQLException("The connection is closed");
+                            }
+                            try {
+                                yield method.invoke(entry.connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    });
+        }
+
+        private void release(Entry entry) {
+            final var now = System.nanoTime();
+            try {
+                if (!entry.connection.getAutoCommit()) {
+                    entry.connection.rollback();
+                    entry.connection.setAutoCommit(true);
+                }
+                if (entry.connection.isReadOnly() != entry.readOnly) {
+                    entry.connection.setReadOnly(entry.readOnly);
+                }
+                if (entry.connection.getTransactionIsolation() != entry.isolation) {
+                    entry.connection.setTransactionIsolation(entry.isolation);
+                }
+            } catch (SQLException e) {
+                discard(entry);
+                return;
+            }
+            final var evicted = new ArrayList<Entry>();
+            lock.lock();
+            try {
+                if (!closed && now - entry.created < maxLifetimeNanos) {
+                    entry.lastUsed = now;
+                    idle.addFirst(entry);
+                    entry = null;
+                }
+                while (!idle.isEmpty() && !isAlive(idle.peekLast(), now)) {
+                    evicted.add(idle.pollLast());
+                }
+                size -= evicted.size();
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            evicted.forEach(ConnectionPool::closeQuietly);
+            if (entry != null) {
+                discard(entry);
+            }
+        }
+
+        private boolean isAlive(Entry entry, long now) {
+            return now - entry.lastUsed < maxIdleNanos && now - entry.created < maxLifetimeNanos;
+        }
+
+        /** Closes the connection and frees its slot in the pool. */
+        private void discard(Entry entry) {
+            if (entry != null) {
+                closeQuietly(entry);
+            }
+            lock.lock();
+            try {
+                size--;
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static void closeQuietly(Entry entry) {
+            try {
+                entry.connection.close();
+            } catch (SQLException e) {
+                // The connection is discarded anyway
+            }
+        }
+
+        /** Returns the pool statistics including the wait times of the borrowed connections. */
+        public Stats stats() {
+            lock.lock();
+            try {
+                return new Stats(size, idle.size(), borrowed.sum(), waitNanos.sum(), waitNanosMax.get());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Closes idle connections, borrowed connections are closed on their return. */
+        @Override
+        public void close() {
+            final List<Entry> entries;
+            lock.lock();
+            try {
+                closed = true;
+                entries = new ArrayList<>(idle);
+                size -= idle.size();
+                idle.clear();
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            entries.forEach(ConnectionPool::closeQuietly);
+        }
+
+        private static final class Entry {
+            private final Connection connection;
+            private final long created;
+            /** The original state restored on the return to the pool */
+            private final boolean readOnly;
+            private final int isolation;
+            private long lastUsed;
+
+            Entry(Connection connection, long created) throws SQLException {
+                this.connection = connection;
+                this.created = created;
+                this.readOnly = connection.isReadOnly();
+                this.isolation = connection.getTransactionIsolation();
+                this.lastUsed = created;
+            }
+        }
+
+        record Stats(int size, int idle, long borrowed, long waitNanos, long waitNanosMax) {
+            public Duration averageWait() {
+                return Duration.ofNanos(borrowed > 0 ? waitNanos / borrowed : 0L);
+            }
+        }
+    }
+
     private <T> void assertEquals(T expected, T result) {
         if (!Objects.equals(expected, result)) {
             throw new IllegalStateException("Objects are not equals: '%s' <> '%s'".formatted(expected, result));
         }
     }
 
+    /** Bulk export and import of the CSV or NDJSON data by the SqlParamBuilder.
+     * CSV values are written without quotes, except for values containing special characters.
+     * An empty unquoted CSV value means {@code NULL}, an empty string is quoted. */
+    static final class DataTransfer {
+        enum Format { CSV, NDJSON }
+        /** An unquoted SQL identifier, the table name can start with a schema name */
+        private static final Pattern COLUMN_NAME = Pattern.compile("[A-Za-z_]\\w*");
+        private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_]\\w*(\\.[A-Za-z_]\\w*)?");
+        private static final int BUFFER_SIZE = 1 << 16;
+        private static final int QUEUE_CAPACITY = 4;
+
+        private DataTransfer() {}
+
+        /** Writes rows of the SQL query of the builder and returns the row count. */
+        static long export(SqlParamBuilder builder, Format format, Writer output) throws SQLException, IOException {
+            final var writer = new BufferedWriter(output, BUFFER_SIZE);
+            try (var rs = builder.executeSelect()) {
+                final var metaData = rs.getMetaData();
+                final var count = metaData.getColumnCount();
+                final var prefixes = new String[count];
+                final var types = new JDBCType[count];
+                for (int i = 0; i < count; i++) {
+                    final var label = metaData.getColumnLabel(i + 1);
+                    prefixes[i] = format == Format.CSV ? label : (i == 0 ? "{" : ",") + jsonString(label) + ":";
+                    types[i] = switch (metaData.getColumnType(i + 1)) {
+                        case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT, Types.DECIMAL,
+                                Types.NUMERIC, Types.DOUBLE, Types.FLOAT, Types.REAL -> JDBCType.NUMERIC;
+                        case Types.BOOLEAN, Types.BIT -> JDBCType.BOOLEAN;
+                        default -> JDBCType.VARCHAR;
+                    };
+                }
+                if (format == Format.CSV) {
+                    for (int i = 0; i < count; i++) {
+                        if (i > 0) writer.write(',');
+                        writeCsv(prefixes[i], writer);
+                    }
+                    writer.write('\n');
+                }
+                long rows = 0;
+                while (rs.next()) {
+                    for (int i = 0; i < count; i++) {
+                        final var value = types[i] == JDBCType.BOOLEAN
+                                ? String.valueOf(rs.getBoolean(i + 1))
+                                : rs.getString(i + 1);
+                        final var isNull = rs.wasNull();
+                        if (format == Format.CSV) {
+                            if (i > 0) writer.write(',');
+                            if (!isNull) writeCsv(value, writer);
+                        } else {
+                            writer.write(prefixes[i]);
+                            if (isNull) {
+                                writer.write("null");
+                            } else if (types[i] != JDBCType.VARCHAR) {
+                                writer.write(value);
+                            } else {
+                                writeJson(value, writer);
+                            }
+                        }
+                    }
+                    writer.write(format == Format.CSV ? "\n" : count > 0 ? "}\n" : "{}\n");
+                    rows++;
+                }
+                writer.flush();
+                return rows;
+            }
+        }
+
+        /** Reads rows by a producer thread in chunks and inserts them to the table by JDBC batches.
+         * Column names are taken from the CSV header or from the first NDJSON object.
+         * @return The row count */
+        static long importData(SqlParamBuilder builder, String table, Format format, Reader input, int batchSize)
+                throws IOException {
+            if (table == null || !TABLE_NAME.matcher(table).matches()) {
+                throw new IllegalArgumentException("Unsupported table name: " + table);
+            }
+            final var reader = new BufferedReader(input, BUFFER_SIZE);
+            final var parser = format == Format.CSV ? new CsvParser(reader) : new JsonParser(reader);
+            final var columns = parser.columns();
+            if (columns == null) {
+                return 0L;
+            }
+            final var names = new StringJoiner(", ");
+            final var marks = new StringJoiner(", ");
+            for (int i = 0; i < columns.size(); i++) {
+                if (!COLUMN_NAME.matcher(columns.get(i)).matches()) {
+                    throw new IllegalArgumentException("Unsupported column name: " + columns.get(i));
+                }
+                names.add(columns.get(i));
+                marks.add(":p" + i);
+            }
+            final var queue = new ArrayBlockingQueue<Object>(QUEUE_CAPACITY);
+            final var producer = new Thread(() -> {
+                try {
+                    var chunk = new ArrayList<String[]>(batchSize);
+                    for (String[] row; (row = parser.next()) != null; ) {
+                        chunk.add(row);
+                        if (chunk.size() >= batchSize) {
+                            queue.put(chunk);
+                            chunk = new ArrayList<>(batchSize);
+                        }
+                    }
+                    queue.put(chunk);
+                    queue.put(List.of());
+                } catch (InterruptedException e) {
+                    // The import was cancelled
+                } catch (Exception e) {
+                    queue.clear();
+                    queue.offer(e);
+                }
+            }, "data-import");
+            producer.setDaemon(true);
+            producer.start();
+            try {
+                builder.sql("INSERT INTO %s (%s) VALUES (%s)".formatted(table, names, marks));
+                final var keys = new String[columns.size()];
+                Arrays.setAll(keys, i -> "p" + i);
+                long rows = 0;
+                while (true) {
+                    final var item = queue.take();
+                    if (item instanceof IOException e) {
+                        throw e;
+                    } else if (item instanceof Exception e) {
+                        throw new SqlParamBuilder.SqlException(e, "Import failed");
+                    }
+                    final var chunk = (List<?>) item;
+                    if (chunk.isEmpty()) {
+                        return rows;
+                    }
+                    for (var row : chunk) {
+                        final var values = (String[]) row;
+                        for (int i = 0; i < keys.length; i++) {
+                            builder.bind(keys[i], i < values.length ? values[i] : null);
+                        }
+                        builder.addBatch();
+                    }
+                    builder.executeBatch();
+                    rows += chunk.size();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SqlParamBuilder.SqlException(e, "Import interrupted");
+            } finally {
+                producer.interrupt();
+            }
+        }
+
+        private static void writeCsv(String value, Writer writer) throws IOException {
+            var quoted = value.isEmpty();
+            for (int i = 0, max = value.length(); i < max && !quoted; i++) {
+                final var c = value.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quoted) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            for (int i = 0, max = value.length(); i < max; i++) {
+                final var c = value.charAt(i);
+                if (c == '"') writer.write('"');
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+
+        private static void writeJson(String value, Writer writer) throws IOException {
+            writer.write('"');
+            for (int i = 0, max = value.length(); i < max; i++) {
+                final var c = value.charAt(i);
+                switch (c) {
+                    case '"' -> writer.write("\\\"");
+                    case '\\' -> writer.write("\\\\");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    case '\t' -> writer.write("\\t");
+                    default -> {
+                        if (c < ' ') {
+                            writer.write("\\u%04x".formatted((int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                    }
+                }
+            }
+            writer.write('"');
+        }
+
+        private static String jsonString(String value) throws IOException {
+            final var result = new StringWriter();
+            writeJson(value, result);
+            return result.toString();
+        }
+
+        /** Streaming reader of rows */
+        private interface RowParser {
+            /** Returns column names or {@code null} for an empty input. */
+            List<String> columns() throws IOException;
+            /** Returns the next row or {@code null} at the end of input. */
+            String[] next() throws IOException;
+        }
+
+        private static final class CsvParser implements RowParser {
+            private final BufferedReader reader;
+            private final StringBuilder value = new StringBuilder(64);
+            private final List<String> row = new ArrayList<>();
+            private int columnCount = 0;
+
+            CsvParser(BufferedReader reader) {
+                this.reader = reader;
+            }
+
+            @Override
+            public List<String> columns() throws IOException {
+                final var result = next();
+                if (result != null) {
+                    columnCount = result.length;
+                    return List.of(result);
+                }
+                return null;
+            }
+
+            @Override
+            public String[] next() throws IOException {
+                row.clear();
+                int c = reader.read();
+                if (c < 0) {
+                    return null;
+                }
+                while (true) {
+                    value.setLength(0);
+                    var quoted = false;
+                    if (c == '"') {
+                        quoted = true;
+                        while ((c = reader.read()) >= 0) {
+                            if (c == '"' && (c = reader.read()) != '"') {
+                                break;
+                            }
+                            value.append((char) c);
+                        }
+                    }
+                    for (; c >= 0 && c != ',' && c != '\n'; c = reader.read()) {
+                        if (c != '\r') value.append((char) c);
+                    }
+                    row.add(quoted || !value.isEmpty() ? value.toString() : null);
+                    if (c != ',') {
+                        return row.toArray(new String[Math.max(columnCount, row.size())]);
+                    }
+                    c = reader.read();
+                }
+            }
+        }
+
+        /** A parser of flat JSON objects, one object per line. */
+        private static final class JsonParser implements RowParser {
+            private final BufferedReader reader;
+            private final StringBuilder value = new StringBuilder(64);
+            private final Map<String, Integer> indexes = new HashMap<>();
+            private final List<String> columns = new ArrayList<>();
+            private final List<String> keys = new ArrayList<>();
+            private final List<String> values = new ArrayList<>();
+            private String line;
+            private int pos;
+            private boolean pending = false;
+
+            JsonParser(BufferedReader reader) {
+                this.reader = reader;
+            }
+
+            @Override
+            public List<String> columns() throws IOException {
+                if (!parseLine()) {
+                    return null;
+                }
+                if (keys.isEmpty()) {
+                    throw new IOException("No columns found at: " + line);
+                }
+                pending = true;
+                columns.addAll(keys);
+                for (int i = 0; i < columns.size(); i++) {
+                    indexes.put(columns.get(i), i);
+                }
+                return columns;
+            }
+
+            @Override
+            public String[] next() throws IOException {
+                if (!pending && !parseLine()) {
+                    return null;
+                }
+                pending = false;
+                final var result = new String[columns.size()];
+                for (int i = 0; i < keys.size(); i++) {
+                    final var index = indexes.get(keys.get(i));
+                    if (index == null) {
+                        throw new IOException("Unknown column '%s' at: %s".formatted(keys.get(i), line));
+                    }
+                    result[index] = values.get(i);
+                }
+                keys.clear();
+                values.clear();
+                return result;
+            }
+
+            private boolean parseLine() throws IOException {
+                do {
+                    line = reader.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    pos = 0;
+                } while (skipSpaces() < 0);
+                expect('{');
+                if (skipSpaces() == '}') {
+                    return true;
+                }
+                do {
+                    skipSpaces();
+                    keys.add(readValue());
+                    skipSpaces();
+                    expect(':');
+                    skipSpaces();
+                    values.add(readValue());
+                    skipSpaces();
+                } while (pos < line.length() && line.charAt(pos++) == ',');
+                if (line.charAt(pos - 1) != '}') {
+                    throw new IOException("Unsupported JSON at: " + line);
+                }
+                return true;
+            }
+
+            private String readValue() throws IOException {
+                value.setLength(0);
+                if (pos < line.length() && line.charAt(pos) == '"') {
+                    for (pos++; pos < line.length(); pos++) {
+                        final var c = line.charAt(pos);
+                        if (c == '"') {
+                            pos++;
+                            return value.toString();
+                        }
+                        if (c == '\\' && ++pos < line.length()) {
+                            final var e = line.charAt(pos);
+                            switch (e) {
+                                case 'n' -> value.append('\n');
+                                case 'r' -> value.append('\r');
+                                case 't' -> value.append('\t');
+                                case 'b' -> value.append('\b');
+                                case 'f' -> value.append('\f');
+                                case 'u' -> {
+                                    value.append((char) Integer.parseInt(line, pos + 1, pos + 5, 16));
+                                    pos += 4;
+                                }
+                                default -> value.append(e);
+                            }
+                        } else {
+                            value.append(c);
+                        }
+                    }
+                    throw new IOException("Unterminated string at: " + line);
+                }
+                for (; pos < line.length(); pos++) {
+                    final var c = line.charAt(pos);
+                    if (c == ',' || c == '}' || c <= ' ') break;
+                    if (c == '{' || c == '[') throw new IOException("Nested values are not supported: " + line);
+                    value.append(c);
+                }
+                final var result = value.toString();
+                return result.equals("null") ? null : result;
+            }
+
+            private int skipSpaces() {
+                while (pos < line.length() && line.charAt(pos) <= ' ') pos++;
+                return pos < line.length() ? line.charAt(pos) : -1;
+            }
+
+            private void expect(char c) throws IOException {
+                if (pos >= line.length() || line.charAt(pos++) != c) {
+                    throw new IOException("Expected '%s' at: %s".formatted(c, line));
+                }
+            }
+        }
+    }
+
+    /** Query statistics with latency histograms per SQL template and an optional log of slow queries.
+     * Usage: {@code builder.listener(queryStats)} */
+    static final class QueryStats implements SqlParamBuilder.QueryListener {
+        private final Map<String, TemplateStats> templates = new ConcurrentHashMap<>();
+        private final long slowNanos;
+        private final Consumer<String> slowLog;
+
+        QueryStats() {
+            this(Duration.ofNanos(Long.MAX_VALUE), message -> {});
+        }
+
+        /** @param slowLog A consumer of messages about statements slower than the threshold. */
+        QueryStats(Duration slowThreshold, Consumer<String> slowLog) {
+            this.slowNanos = slowThreshold.toNanos();
+            this.slowLog = slowLog;
+        }
+
+        @Override
+        public void afterExecute(SqlParamBuilder builder, long nanos) {
+            stats(builder).execute.record(nanos);
+            logSlow("execute", builder, nanos, -1L);
+        }
+
+        @Override
+        public void afterFetch(SqlParamBuilder builder, long rows, long nanos) {
+            final var stats = stats(builder);
+            stats.fetch.record(nanos);
+            stats.rows.add(rows);
+            logSlow("fetch", builder, nanos, rows);
+        }
+
+        private TemplateStats stats(SqlParamBuilder builder) {
+            return templates.computeIfAbsent(builder.sqlTemplate, t -> new TemplateStats());
+        }
+
+        private void logSlow(String phase, SqlParamBuilder builder, long nanos, long rows) {
+            if (nanos >= slowNanos) {
+                slowLog.accept("Slow SQL %s %s ms%s: %s".formatted(phase, nanos / 1_000_000,
+                        rows >= 0 ? " (%s rows)".formatted(rows) : "", builder.toStringLine()));
+            }
+        }
+
+        /** Returns the statistics of templates sorted by the total time descending. */
+        public List<Summary> summary() {
+            return templates.entrySet().stream()
+                    .map(e -> new Summary(e.getKey(), e.getValue().execute.count(), e.getValue().rows.sum(),
+                            e.getValue().execute.latency(), e.getValue().fetch.latency()))
+                    .sorted(Comparator.comparing((Summary s) -> s.execute.total().plus(s.fetch.total())).reversed())
+                    .toList();
+        }
+
+        /** Returns a text report with one line per SQL template. */
+        public String report() {
+            final var result = new StringBuilder(256);
+            for (var s : summary()) {
+                result.append("count=%s rows=%s execute[%s] fetch[%s]: %s%n".formatted(
+                        s.executions, s.rows, s.execute, s.fetch, s.sqlTemplate.replaceAll("\\s*\\R+\\s*", " ")));
+            }
+            return result.toString();
+        }
+
+        public void clear() {
+            templates.clear();
+        }
+
+        record Summary(String sqlTemplate, long executions, long rows, Latency execute, Latency fetch) {}
+
+        record Latency(Duration total, Duration p50, Duration p95, Duration p99) {
+            @Override
+            public String toString() {
+                return "total=%sms p50=%sus p95=%sus p99=%sus".formatted(total.toMillis(),
+                        p50.toNanos() / 1_000, p95.toNanos() / 1_000, p99.toNanos() / 1_000);
+            }
+        }
+
+        private static final class TemplateStats {
+            private final Histogram execute = new Histogram();
+            private final Histogram fetch = new Histogram();
+            private final LongAdder rows = new LongAdder();
+        }
+
+        /** A lock-free log-linear histogram of nanoseconds with four buckets per power of two,
+         * the relative error of percentiles is less than 25%. */
+        static final class Histogram {
+            private final AtomicLongArray buckets = new AtomicLongArray(256);
+            private final LongAdder total = new LongAdder();
+
+            void record(long nanos) {
+                buckets.incrementAndGet(index(Math.max(nanos, 0L)));
+                total.add(nanos);
+            }
+
+            static int index(long value) {
+                if (value < 4L) {
+                    return (int) value;
+                }
+                final var exponent = 63 - Long.numberOfLeadingZeros(value);
+                return (exponent - 1) << 2 | (int) (value >>> (exponent - 2)) & 3;
+            }
+
+            /** Returns the upper bound of the bucket. */
+            static long upperBound(int index) {
+                if (index < 4) {
+                    return index;
+                }
+                final var exponent = (index >> 2) + 1;
+                return ((4L | (index & 3)) + 1L << (exponent - 2)) - 1L;
+            }
+
+            long count() {
+                var result = 0L;
+                for (int i = 0; i < buckets.length(); i++) {
+                    result += buckets.get(i);
+                }
+                return result;
+            }
+
+            long percentile(double percentile) {
+                final var limit = (long) Math.ceil(count() * percentile / 100.0);
+                var sum = 0L;
+                for (int i = 0; i < buckets.length(); i++) {
+                    sum += buckets.get(i);
+                    if (sum >= limit && sum > 0L) {
+                        return upperBound(i);
+                    }
+                }
+                return 0L;
+            }
+
+            Latency latency() {
+                return new Latency(Duration.ofNanos(total.sum()), Duration.ofNanos(percentile(50)),
+                        Duration.ofNanos(percentile(95)), Duration.ofNanos(percentile(99)));
+            }
+        }
+    }
+
+    /** Asynchronous execution of SqlParamBuilder tasks. Each task gets its own builder and a connection
+     * from the supplier, tasks using the same physical connection are serialized.
+     * Virtual threads are used if the Java runtime supports them (Java 21+), otherwise a fixed thread pool. */
+    static final class AsyncSql implements AutoCloseable {
+        private final SqlParamBuilder.SqlSupplier<Connection> connections;
+        private final boolean closeConnections;
+        private final ExecutorService executor;
+        private final ReentrantLock guardsLock = new ReentrantLock();
+        private final Map<Connection, ReentrantLock> guards = new WeakHashMap<>();
+
+        /** @param closeConnections Close (or return to a pool) each connection after its task */
+        AsyncSql(SqlParamBuilder.SqlSupplier<Connection> connections, boolean closeConnections) {
+            this(connections, closeConnections, newExecutor());
+        }
+
+        AsyncSql(SqlParamBuilder.SqlSupplier<Connection> connections, boolean closeConnections, ExecutorService executor) {
+            this.connections = connections;
+            this.closeConnections = closeConnections;
+            this.executor = executor;
+        }
+
+        static ExecutorService newExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                final var threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+                return Executors.newFixedThreadPool(threads, task -> {
+                    final var thread = new Thread(task, "sql-async");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+
+        /** Runs the task asynchronously with a new builder. */
+        public <R> CompletableFuture<R> submit(SqlParamBuilder.SqlFunction<SqlParamBuilder, R> task) {
+            return CompletableFuture.supplyAsync(() -> {
+                Connection connection = null;
+                try {
+                    connection = connections.get();
+                    final var guard = guard(connection);
+                    guard.lock();
+                    try (var builder = new SqlParamBuilder(connection)) {
+                        return task.applyRs(builder);
+                    } finally {
+                        guard.unlock();
+                    }
+                } catch (SQLException e) {
+                    throw new SqlParamBuilder.SqlException(e);
+                } finally {
+                    if (closeConnections && connection != null) {
+                        try {
+                            connection.close();
+                        } catch (SQLException e) {
+                            // The task result is more important
+                        }
+                    }
+                }
+            }, executor);
+        }
+
+        /** Executes the statement, parameters are assigned by the binder. */
+        public CompletableFuture<Integer> execute(String sql, SqlParamBuilder.SqlConsumer<SqlParamBuilder> binder) {
+            return submit(builder -> {
+                binder.accept(builder.sql(sql));
+                return builder.execute();
+            });
+        }
+
+        /** Executes the query and returns all mapped rows. */
+        public <R> CompletableFuture<List<R>> list(String sql, SqlParamBuilder.SqlConsumer<SqlParamBuilder> binder,
+                                                   SqlParamBuilder.SqlFunction<ResultSet, ? extends R> mapper) {
+            return submit(builder -> {
+                binder.accept(builder.sql(sql));
+                return builder.<R>streamMap(mapper).toList();
+            });
+        }
+
+        /** Executes the statement for each item in one JDBC batch. */
+        public <T> CompletableFuture<int[]> executeBatch(String sql, Collection<? extends T> items,
+                                                         BiConsumer<SqlParamBuilder, ? super T> binder) {
+            return submit(builder -> {
+                builder.sql(sql);
+                for (var item : items) {
+                    binder.accept(builder, item);
+                    builder.addBatch();
+                }
+                return builder.executeBatch();
+            });
+        }
+
+        /** Returns a lock of the physical connection, a pooled connection is unwrapped. */
+        private ReentrantLock guard(Connection connection) throws SQLException {
+            final var key = connection.isWrapperFor(Connection.class) ? connection.unwrap(Connection.class) : connection;
+            guardsLock.lock();
+            try {
+                return guards.computeIfAbsent(key, k -> new ReentrantLock());
+            } finally {
+                guardsLock.unlock();
+            }
+        }
+
+        /** Stops accepting new tasks, running tasks are finished. */
+        @Override
+        public void close() {
+            executor.shutdown();
+        }
+    }
+
     /**
-     * Less than 250 lines long class to simplify work with JDBC.
+     * Less than 700 lines long class to simplify work with JDBC.
      * Original source: <a href="https://github.com/pponec/PPScriptsForJava/blob/development/src/main/java/net/ponec/script/SqlExecutor.java">GitHub</a>
      * Licence: Apache License, Version 2.0
      * @author Pavel Ponec, https://github.com/pponec
-     * @version 1.1.2
+     * @version 1.2.0
      */
     static public class SqlParamBuilder implements AutoCloseable {
         /** SQL parameter mark type of {@code :param} */
@@ -135,6 +1066,10 @@ public final class SqlExecutor {
         private final Map<String, ParamValue> params = new HashMap<>();
         private PreparedStatement preparedStatement = null;
         private ResultSet resultSet = null;
+        private QueryListener listener = QueryListener.NONE;
+        /** Fetched rows of the current ResultSet, or {@code -1} if the fetch is reported. */
+        private long fetchRows = -1L;
+        private long fetchNanos = 0L;
 
         public SqlParamBuilder(Connection dbConnection) {
             this.dbConnection = dbConnection;
@@ -166,27 +1101,61 @@ public final class SqlExecutor {
             return this;
         }
 
+        /** Sets a listener of the statement phases, the default listener does nothing. */
+        public SqlParamBuilder listener(QueryListener listener) {
+            this.listener = Objects.requireNonNull(listener);
+            return this;
+        }
+
         public int execute() {
+            return run(Statement.NO_GENERATED_KEYS, PreparedStatement::executeUpdate);
+        }
+
+        /** Binds current parameters and adds them to the batch of the statement. */
+        public SqlParamBuilder addBatch() {
             try {
-                return prepareStatement(Statement.NO_GENERATED_KEYS).executeUpdate();
+                prepareStatement(Statement.NO_GENERATED_KEYS).addBatch();
+                return this;
             } catch (SQLException e) {
                 throw new SqlException(e);
             }
         }
 
-        /** Executes an INSERT statement with the ability to retrieve generated keys. */
-        public int executeInsert() {
+        /** Executes the batch of the statement. */
+        public int[] executeBatch() {
+            if (preparedStatement == null) {
+                return new int[0];
+            }
             try {
-                return prepareStatement(Statement.RETURN_GENERATED_KEYS).executeUpdate();
+                listener.beforeExecute(this);
+                final var start = System.nanoTime();
+                final var result = preparedStatement.executeBatch();
+                listener.afterExecute(this, System.nanoTime() - start);
+                return result;
             } catch (SQLException e) {
                 throw new SqlException(e);
             }
         }
 
+        /** Executes an INSERT statement with the ability to retrieve generated keys. */
+        public int executeInsert() {
+            return run(Statement.RETURN_GENERATED_KEYS, PreparedStatement::executeUpdate);
+        }
+
         /** Internal execution of a SELECT query. */
         private ResultSet executeSelect() {
+            return run(Statement.NO_GENERATED_KEYS, PreparedStatement::executeQuery);
+        }
+
+        /** Prepares the statement and runs it with notifying the listener. */
+        private <T> T run(int autoGeneratedKeys, SqlFunction<PreparedStatement, T> statement) {
             try {
-                return prepareStatement(Statement.NO_GENERATED_KEYS).executeQuery();
+                final var ps = prepareStatement(autoGeneratedKeys);
+                listener.beforeExecute(this);
+                final var start = System.nanoTime();
+                final var result = statement.applyRs(ps);
+                listener.afterExecute(this, System.nanoTime() - start);
+                return result;
             } catch (SQLException e) {
                 throw new SqlException(e);
             }
@@ -196,11 +1165,23 @@ public final class SqlExecutor {
          * Prefer {@link #streamMap(SqlFunction)} or {@link #forEach(SqlConsumer)}. */
         private Stream<ResultSet> stream(final ResultSet rs) {
             switchResultSet(rs);
+            fetchRows = 0L;
+            fetchNanos = 0L;
+            listener.beforeFetch(this);
+            final var timed = listener != QueryListener.NONE;
             final var iterator = new Iterator<ResultSet>() {
                 @Override
                 public boolean hasNext() {
                     try {
-                        return resultSet.next();
+                        final var start = timed ? System.nanoTime() : 0L;
+                        final var result = resultSet != null && resultSet.next();
+                        if (timed) fetchNanos += System.nanoTime() - start;
+                        if (result) {
+                            fetchRows++;
+                        } else {
+                            finishFetch();
+                        }
+                        return result;
                     } catch (SQLException e) {
                         throw new SqlException(e);
                     }
@@ -214,8 +1195,18 @@ public final class SqlExecutor {
             return StreamSupport.stream(spliterator, false).onClose(() -> switchResultSet(null));
         }
 
+        /** Reports the fetch of the current ResultSet to the listener, only once. */
+        private void finishFetch() {
+            if (fetchRows >= 0L) {
+                final var rows = fetchRows;
+                fetchRows = -1L;
+                listener.afterFetch(this, rows, fetchNanos);
+            }
+        }
+
         /** Safely closes the current ResultSet and starts tracking the new one. */
         private void switchResultSet(final ResultSet rs) {
+            finishFetch();
             try (var oldResultSet = this.resultSet) {
             } catch (SQLException e) {
                 throw new SqlException(e);
@@ -233,9 +1224,57 @@ public final class SqlExecutor {
             return stream(executeSelect()).map(mapper);
         }
 
+        /** Executes the query and maps each row to a record using its canonical constructor.
+         * Record components are paired with columns by name (ignoring case and underscores)
+         * once per query, then rows are read by column index. <br>
+         * Note: a SQL {@code NULL} is mapped to zero (or {@code false}) for primitive components. */
+        public <R extends Record> Stream<R> streamAs(Class<R> recordType) {
+            final var rs = executeSelect();
+            final var result = stream(rs);
+            try {
+                return result.map(RecordMapper.of(recordType, rs.getMetaData()));
+            } catch (SQLException e) {
+                throw new SqlException(e, "streamAs(%s)".formatted(recordType.getSimpleName()));
+            }
+        }
+
+        /** Runs the work in a transaction, commits it on success and rolls it back on an exception.
+         * The original auto-commit mode of the connection is restored. */
+        public <R> R inTransaction(SqlFunction<SqlParamBuilder, R> work) {
+            try {
+                final var autoCommit = dbConnection.getAutoCommit();
+                dbConnection.setAutoCommit(false);
+                try {
+                    final var result = work.applyRs(this);
+                    dbConnection.commit();
+                    return result;
+                } catch (SQLException | RuntimeException | Error e) {
+                    try {
+                        dbConnection.rollback();
+                    } catch (SQLException re) {
+                        e.addSuppressed(re);
+                    }
+                    throw e;
+                } finally {
+                    dbConnection.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                throw new SqlException(e, "Transaction failed");
+            }
+        }
+
+        /** Starts a transaction committed after every {@code chunkRows} rows or after the {@code chunkTime}.
+         * Each row runs after a savepoint, so a failed row can be retried without losing the chunk.
+         * Usage: {@code try (var chunks = builder.chunkedCommit(1000, Duration.ofSeconds(1), 2)) { chunks.row(b -> ...); }}
+         * @param retries Count of repeated attempts of a failed row. */
+        public ChunkedCommit chunkedCommit(int chunkRows, Duration chunkTime, int retries) {
+            return new ChunkedCommit(this, chunkRows, chunkTime.toNanos(), retries);
+        }
+
         /** Closes the PreparedStatement and any active ResultSet. The database connection remains open. */
         @Override
         public void close() {
+            finishFetch();
             try (var ps = preparedStatement; var rs = resultSet) {
             } catch (Exception e) {
                 throw new SqlException(e, "Closing resources failed");
@@ -249,6 +1288,8 @@ public final class SqlExecutor {
         /** Builds or reuses a PreparedStatement and binds current parameters.
          * @param autoGeneratedKeys For example: {@code Statement.RETURN_GENERATED_KEYS} */
         public PreparedStatement prepareStatement(int autoGeneratedKeys) {
+            listener.beforePrepare(this);
+            final var start = System.nanoTime();
             try {
                 final var sqlValues = new ArrayList<ParamValue>(params.size());
                 final var sql = buildSql(sqlValues, false);
@@ -260,6 +1301,7 @@ public final class SqlExecutor {
                     result.setObject(i + 1, sqlValue.first(), sqlValue.jdbcType);
                 }
                 preparedStatement = result;
+                listener.afterPrepare(this, System.nanoTime() - start);
                 return result;
             } catch (SQLException e) {
                 throw new SqlException(e, "prepareStatement()");
@@ -316,6 +1358,291 @@ public final class SqlExecutor {
             return result.toString();
         }
 
+        /** Runs the SQL template concurrently for partitions of the key range {@code [lo, hi)}, each partition
+         * on its own connection and builder, and returns merged rows. Closing the stream cancels running partitions.
+         * Close the stream by the try-with-resources statement, mainly after a short-circuit operation like {@code findFirst()}:
+         * producers of an abandoned stream are blocked until the stream is garbage collected.
+         * Sample template: {@code SELECT t.* FROM employee t WHERE t.id >= :lo AND t.id < :hi}
+         * @param connections The supplier of connections, that are closed after their partition is done.
+         * @param ordered If true, rows are returned in partition order, otherwise in order of arrival. */
+        public static <R> Stream<R> streamPartitioned(
+                final SqlSupplier<Connection> connections,
+                final String sqlTemplate,
+                final long lo,
+                final long hi,
+                final int partitions,
+                final boolean ordered,
+                final SqlFunction<ResultSet, ? extends R> mapper) {
+            if (partitions < 1 || hi < lo) {
+                throw new IllegalArgumentException("Wrong partitions %s of the range [%s, %s)".formatted(partitions, lo, hi));
+            }
+            final var count = (int) Math.max(1, Math.min(partitions, hi - lo));
+            final var width = hi - lo;
+            final var queues = new ArrayList<BlockingQueue<Object>>(count);
+            final var executor = Executors.newFixedThreadPool(count, task -> {
+                final var thread = new Thread(task, "sql-partition");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < count; i++) {
+                final var from = lo + width / count * i + Math.min(i, width % count);
+                final var to = lo + width / count * (i + 1) + Math.min(i + 1, width % count);
+                final var queue = ordered || i == 0 ? new ArrayBlockingQueue<>(1024) : queues.get(0);
+                queues.add(queue);
+                executor.execute(() -> {
+                    try (var connection = connections.get(); var builder = new SqlParamBuilder(connection)) {
+                        builder.sql(sqlTemplate).bind("lo", from).bind("hi", to).streamMap(mapper)
+                                .forEach(row -> Partition.put(queue, row != null ? row : Partition.NULL));
+                        Partition.put(queue, Partition.END);
+                    } catch (Partition.Cancel e) {
+                        // The stream was closed
+                    } catch (Throwable e) {
+                        Partition.fail(queue, e);
+                    }
+                });
+            }
+            executor.shutdown();
+            final var iterator = new Iterator<R>() {
+                private int finished = 0;
+                private Object next = null;
+                @Override
+                public boolean hasNext() {
+                    while (next == null && finished < count) {
+                        final var item = Partition.take(queues.get(ordered ? finished : 0));
+                        if (item == Partition.END) {
+                            finished++;
+                        } else if (item instanceof Partition failure) {
+                            executor.shutdownNow();
+                            throw failure.cause instanceof RuntimeException re ? re : new SqlException(failure.cause);
+                        } else {
+                            next = item;
+                        }
+                    }
+                    return next != null;
+                }
+                @Override
+                @SuppressWarnings("unchecked")
+                public R next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final var result = next;
+                    next = null;
+                    return result != Partition.NULL ? (R) result : null;
+                }
+            };
+            Partition.CLEANER.register(iterator, executor::shutdownNow); // Releases producers of an abandoned stream
+            final var spliterator = Spliterators.spliteratorUnknownSize(iterator, ordered ? Spliterator.ORDERED : 0);
+            return StreamSupport.stream(spliterator, false).onClose(executor::shutdownNow);
+        }
+
+        /** A failure of a partition including markers of the partition queue. */
+        private record Partition(Throwable cause) {
+            static final Cleaner CLEANER = Cleaner.create();
+            static final Object END = new Object();
+            static final Object NULL = new Object();
+
+            static void put(BlockingQueue<Object> queue, Object item) {
+                try {
+                    queue.put(item);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new Cancel();
+                }
+            }
+
+            static void fail(BlockingQueue<Object> queue, Throwable cause) {
+                try {
+                    put(queue, new Partition(cause));
+                } catch (Cancel e) {
+                    // The stream was closed
+                }
+            }
+
+            static Object take(BlockingQueue<Object> queue) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SqlException(e, "Interrupted");
+                }
+            }
+
+            static final class Cancel extends RuntimeException {
+                private static final long serialVersionUID = 1L;
+            }
+        }
+
+        /** Transaction with commits of row chunks, see the {@link #chunkedCommit(int, Duration, int)} method. */
+        public static final class ChunkedCommit implements AutoCloseable {
+            private final SqlParamBuilder builder;
+            private final int chunkRows;
+            private final long chunkNanos;
+            private final int retries;
+            private final boolean autoCommit;
+            private int rows = 0;
+            private long chunkStart = System.nanoTime();
+            private long committedRows = 0L;
+
+            private ChunkedCommit(SqlParamBuilder builder, int chunkRows, long chunkNanos, int retries) {
+                this.builder = builder;
+                this.chunkRows = Math.max(1, chunkRows);
+                this.chunkNanos = chunkNanos;
+                this.retries = Math.max(0, retries);
+                try {
+                    this.autoCommit = builder.dbConnection.getAutoCommit();
+                    builder.dbConnection.setAutoCommit(false);
+                } catch (SQLException e) {
+                    throw new SqlException(e, "chunkedCommit()");
+                }
+            }
+
+            /** Runs the work of one row. A failed attempt is rolled back to the savepoint of the row,
+             * the exception of the last attempt is thrown. */
+            public ChunkedCommit row(SqlConsumer<SqlParamBuilder> work) {
+                final var connection = builder.dbConnection;
+                try {
+                    for (int attempt = 0; ; attempt++) {
+                        final var savepoint = connection.setSavepoint();
+                        try {
+                            work.acceptResultSet(builder);
+                            connection.releaseSavepoint(savepoint);
+                            break;
+                        } catch (Exception e) {
+                            connection.rollback(savepoint);
+                            if (attempt >= retries) {
+                                throw e instanceof RuntimeException re ? re : new SqlException(e, "Row failed");
+                            }
+                        }
+                    }
+                    if (++rows >= chunkRows || System.nanoTime() - chunkStart >= chunkNanos) {
+                        commit();
+                    }
+                    return this;
+                } catch (SQLException e) {
+                    throw new SqlException(e, "Row failed");
+                }
+            }
+
+            /** Commits the current chunk. */
+            public void commit() {
+                try {
+                    builder.dbConnection.commit();
+                    committedRows += rows;
+                    rows = 0;
+                    chunkStart = System.nanoTime();
+                } catch (SQLException e) {
+                    throw new SqlException(e, "Commit failed");
+                }
+            }
+
+            /** Returns the count of committed rows. */
+            public long committedRows() {
+                return committedRows;
+            }
+
+            /** Commits the rest of rows and restores the auto-commit mode. */
+            @Override
+            public void close() {
+                try {
+                    commit();
+                } finally {
+                    try {
+                        builder.dbConnection.setAutoCommit(autoCommit);
+                    } catch (SQLException e) {
+                        throw new SqlException(e, "Closing failed");
+                    }
+                }
+            }
+        }
+
+        /** A row mapper compiled from MethodHandles to the canonical record constructor. */
+        static final class RecordMapper<R extends Record> implements SqlFunction<ResultSet, R> {
+            /** Getters without boxing, other types are read by {@code ResultSet.getObject(int, Class)} */
+            private static final Map<Class<?>, String> GETTERS = Map.of(
+                    int.class, "getInt", long.class, "getLong",
+                    double.class, "getDouble", float.class, "getFloat",
+                    short.class, "getShort", byte.class, "getByte",
+                    boolean.class, "getBoolean", String.class, "getString");
+            /** Compiled mappers by the record type and column labels */
+            private static final Map<List<Object>, RecordMapper<?>> CACHE = new ConcurrentHashMap<>();
+            private final MethodHandle handle;
+
+            private RecordMapper(MethodHandle handle) {
+                this.handle = handle;
+            }
+
+            @SuppressWarnings("unchecked")
+            static <R extends Record> RecordMapper<R> of(Class<R> recordType, ResultSetMetaData metaData)
+                    throws SQLException {
+                final var key = new ArrayList<Object>(metaData.getColumnCount() + 1);
+                key.add(recordType);
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    key.add(metaData.getColumnLabel(i));
+                }
+                final var result = CACHE.get(key);
+                return result != null ? (RecordMapper<R>) result : (RecordMapper<R>) CACHE.computeIfAbsent(key,
+                        k -> compile(recordType, k.subList(1, k.size())));
+            }
+
+            private static <R extends Record> RecordMapper<R> compile(Class<R> recordType, List<Object> labels) {
+                final var columns = new HashMap<String, Integer>();
+                for (int i = labels.size(); i > 0; i--) {
+                    columns.put(normalize((String) labels.get(i - 1)), i);
+                }
+                try {
+                    final var lookup = MethodHandles.lookup();
+                    final var components = recordType.getRecordComponents();
+                    final var types = Stream.of(components).map(RecordComponent::getType).toArray(Class<?>[]::new);
+                    final var constructor = recordType.getDeclaredConstructor(types);
+                    constructor.setAccessible(true);
+                    final var getters = new MethodHandle[components.length];
+                    for (int i = 0; i < components.length; i++) {
+                        final var column = columns.get(normalize(components[i].getName()));
+                        if (column == null) {
+                            throw new SqlException(null, "No column found for the record component: "
+                                    + recordType.getSimpleName() + "." + components[i].getName());
+                        }
+                        getters[i] = getter(lookup, types[i], column);
+                    }
+                    final var rowHandle = MethodHandles.permuteArguments(
+                            MethodHandles.filterArguments(lookup.unreflectConstructor(constructor), 0, getters),
+                            MethodType.methodType(recordType, ResultSet.class),
+                            new int[components.length]);
+                    return new RecordMapper<>(rowHandle.asType(MethodType.methodType(Record.class, ResultSet.class)));
+                } catch (ReflectiveOperationException e) {
+                    throw new SqlException(e, "Record mapper failed: " + recordType.getName());
+                }
+            }
+
+            private static MethodHandle getter(MethodHandles.Lookup lookup, Class<?> type, int column)
+                    throws ReflectiveOperationException {
+                final var name = GETTERS.get(type);
+                return name != null
+                        ? MethodHandles.insertArguments(lookup.findVirtual(ResultSet.class, name,
+                                MethodType.methodType(type, int.class)), 1, column)
+                        : MethodHandles.insertArguments(lookup.findVirtual(ResultSet.class, "getObject",
+                                MethodType.methodType(Object.class, int.class, Class.class)), 1, column, type)
+                        .asType(MethodType.methodType(type, ResultSet.class));
+            }
+
+            private static String normalize(String name) {
+                return name.replace("_", "").toLowerCase(Locale.ROOT);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public R applyRs(ResultSet resultSet) throws SQLException {
+                try {
+                    return (R) handle.invokeExact(resultSet);
+                } catch (SQLException | RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new SqlException(e);
+                }
+            }
+        }
+
         record ParamValue(JDBCType jdbcType, Object... values) {
             public Object first() {
                 return values.length > 0 ? values[0] : null;
@@ -343,6 +1670,24 @@ public final class SqlExecutor {
             R applyRs(T resultSet) throws SQLException;
         }
 
+        /** A listener of the statement phases. The SQL template of the event is available
+         * in the {@code sqlTemplate} field of the builder, all times are in nanoseconds. */
+        public interface QueryListener {
+            QueryListener NONE = new QueryListener() {};
+            default void beforePrepare(SqlParamBuilder builder) {}
+            default void afterPrepare(SqlParamBuilder builder, long nanos) {}
+            default void beforeExecute(SqlParamBuilder builder) {}
+            default void afterExecute(SqlParamBuilder builder, long nanos) {}
+            default void beforeFetch(SqlParamBuilder builder) {}
+            /** Called when all rows are read or the ResultSet is closed. */
+            default void afterFetch(SqlParamBuilder builder, long rows, long nanos) {}
+        }
+
+        @FunctionalInterface
+        public interface SqlSupplier<T> {
+            T get() throws SQLException;
+        }
+
         @FunctionalInterface
         public interface SqlConsumer<T> extends Consumer<T> {
             @Override
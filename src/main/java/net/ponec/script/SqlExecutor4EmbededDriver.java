@@ -8,17 +8,28 @@
 package net.ponec.script;
 
 import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
 
 /** Use SQL statements by the SqlParamBuilder class. */
 public final class SqlExecutor4EmbededDriver {
@@ -97,12 +108,11 @@ public final class SqlExecutor4EmbededDriver {
         }
     }
 
-    private static byte[] jdbcDriver() throws Exception {
+    private static Path jdbcDriver() {
         var h2Version="2.2.224";
         var driver="%s/.m2/repository/com/h2database/h2/%s/h2-%s.jar"
                 .formatted(System.getProperty("user.home"), h2Version, h2Version);
-        var jdbcDriver = Path.of(driver);
-        return Files.readAllBytes(jdbcDriver);
+        return Path.of(driver);
     }
 
 
@@ -110,23 +120,38 @@ public final class SqlExecutor4EmbededDriver {
     record File(String path, String... base64Body) {}
 
     record ConnectionProvider(String jdbcClass, String jdbcUrl, String user, String passwd) {
+        /** Drivers loaded from JAR files are reused by all connections */
+        private static final Map<String, Driver> drivers = new ConcurrentHashMap<>();
 
-        Connection connection(byte[] driver) throws SQLException {
+        /** Creates a connection by a driver from the memory-mapped JAR file, or by the DriverManager
+         * if the JAR is {@code null}. The DriverManager does not accept drivers of a foreign class loader,
+         * so the driver is called directly. */
+        Connection connection(Path driverJar) throws SQLException {
             try {
-                if (driver != null ) {
-                    var classLoader = new ClassLoader() {
-                        @Override
-                        public Class<?> findClass(String name) {
-                            return defineClass(name, driver, 0, driver.length);
-                        }
-                    };
-                    Class.forName(jdbcClass, true, classLoader);
-                } else {
+                if (driverJar == null) {
                     Class.forName(jdbcClass);
+                    return DriverManager.getConnection(jdbcUrl, user, passwd);
+                }
+                final var key = jdbcClass + '@' + driverJar.toAbsolutePath();
+                var driver = drivers.get(key);
+                if (driver == null) {
+                    final var classLoader = JarClassLoader.of(driverJar, true);
+                    driver = (Driver) Class.forName(jdbcClass, true, classLoader).getDeclaredConstructor().newInstance();
+                    final var previous = drivers.putIfAbsent(key, driver);
+                    driver = previous != null ? previous : driver;
+                }
+                final var properties = new Properties();
+                properties.setProperty("user", user);
+                properties.setProperty("password", passwd);
+                final var result = driver.connect(jdbcUrl, properties);
+                if (result == null) {
+                    throw new SQLException("Unsupported URL of the driver %s: %s".formatted(jdbcClass, jdbcUrl));
                 }
-                return DriverManager.getConnection(jdbcUrl, user, passwd);
+                return result;
             } catch (ClassNotFoundException ex) {
                 throw new SQLException("Driver class not found: " + jdbcClass, ex);
+            } catch (IOException | ReflectiveOperationException ex) {
+                throw new SQLException("Driver loading failed: " + driverJar, ex);
             }
         }
 
@@ -137,6 +162,151 @@ public final class SqlExecutor4EmbededDriver {
         }
     }
 
+    /** A class loader of a JAR file in memory. The central directory of the JAR is indexed once,
+     * classes and resources are inflated on demand. Only JAR files smaller than 2 GB are supported. */
+    static final class JarClassLoader extends ClassLoader {
+        private static final int LOCAL_HEADER = 0x04034b50;
+        private static final int CENTRAL_HEADER = 0x02014b50;
+        private static final int END_OF_DIRECTORY = 0x06054b50;
+        private final ByteBuffer jar;
+        private final Map<String, Entry> entries;
+        private final URLStreamHandler urlHandler = new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL url) {
+                return new URLConnection(url) {
+                    @Override public void connect() {}
+                    @Override public InputStream getInputStream() throws IOException {
+                        final var entry = entries.get(url.getPath().substring(1));
+                        if (entry == null) {
+                            throw new FileNotFoundException(url.toString());
+                        }
+                        return new ByteArrayInputStream(read(entry));
+                    }
+                };
+            }
+        };
+
+        JarClassLoader(ByteBuffer jar, ClassLoader parent) throws IOException {
+            super(parent);
+            this.jar = jar.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            this.entries = index(this.jar);
+        }
+
+        /** Creates a class loader of the JAR file with the platform class loader as the parent.
+         * @param mapped Map the file to memory instead of reading it to the heap */
+        static JarClassLoader of(Path path, boolean mapped) throws IOException {
+            if (!mapped) {
+                return new JarClassLoader(ByteBuffer.wrap(Files.readAllBytes(path)), getPlatformClassLoader());
+            }
+            try (var channel = FileChannel.open(path)) {
+                return new JarClassLoader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                        getPlatformClassLoader());
+            }
+        }
+
+        private static Map<String, Entry> index(ByteBuffer jar) throws IOException {
+            var end = jar.limit() - 22;
+            final var min = Math.max(0, end - 0xFFFF);
+            while (end >= min && jar.getInt(end) != END_OF_DIRECTORY) {
+                end--;
+            }
+            if (end < min) {
+                throw new IOException("No ZIP central directory found");
+            }
+            final var count = Short.toUnsignedInt(jar.getShort(end + 10));
+            final var result = new HashMap<String, Entry>(count * 4 / 3 + 1);
+            var pos = jar.getInt(end + 16);
+            for (int i = 0; i < count; i++) {
+                if (jar.getInt(pos) != CENTRAL_HEADER) {
+                    throw new IOException("Broken ZIP central directory at: " + pos);
+                }
+                final var nameLength = Short.toUnsignedInt(jar.getShort(pos + 28));
+                final var name = new byte[nameLength];
+                jar.get(pos + 46, name);
+                result.put(new String(name, StandardCharsets.UTF_8), new Entry(
+                        jar.getShort(pos + 10),
+                        jar.getInt(pos + 20),
+                        jar.getInt(pos + 24),
+                        jar.getInt(pos + 42)));
+                pos += 46 + nameLength
+                        + Short.toUnsignedInt(jar.getShort(pos + 30))
+                        + Short.toUnsignedInt(jar.getShort(pos + 32));
+            }
+            return result;
+        }
+
+        /** Returns the uncompressed content of the entry. */
+        private byte[] read(Entry entry) throws IOException {
+            final var header = entry.offset;
+            if (jar.getInt(header) != LOCAL_HEADER) {
+                throw new IOException("Broken ZIP entry at: " + header);
+            }
+            final var start = header + 30
+                    + Short.toUnsignedInt(jar.getShort(header + 26))
+                    + Short.toUnsignedInt(jar.getShort(header + 28));
+            final var result = new byte[entry.size];
+            final var data = jar.slice(start, entry.compressedSize);
+            if (entry.method == 0) {
+                data.get(result);
+                return result;
+            }
+            final var inflater = new Inflater(true);
+            try {
+                inflater.setInput(data);
+                for (int length = 0; length < result.length && !inflater.finished(); ) {
+                    final var n = inflater.inflate(result, length, result.length - length);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("Truncated ZIP entry at: " + header);
+                    }
+                    length += n;
+                }
+                return result;
+            } catch (DataFormatException e) {
+                throw new IOException("Broken ZIP entry at: " + header, e);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            final var entry = entries.get(name.replace('.', '/') + ".class");
+            if (entry == null) {
+                throw new ClassNotFoundException(name);
+            }
+            try {
+                final var bytes = read(entry);
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        @Override
+        protected URL findResource(String name) {
+            try {
+                return entries.containsKey(name) ? new URL("jar-memory", "", -1, "/" + name, urlHandler) : null;
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected Enumeration<URL> findResources(String name) {
+            final var result = findResource(name);
+            return result != null
+                    ? Collections.enumeration(List.of(result))
+                    : Collections.emptyEnumeration();
+        }
+
+        /** Returns the count of indexed entries. */
+        int size() {
+            return entries.size();
+        }
+
+        private record Entry(short method, int compressedSize, int size, int offset) {}
+    }
+
     private <T> void assertEquals(T expected, T result) {
         if (!Objects.equals(expected, result)) {
             throw new IllegalStateException("Objects are not equals: '%s' <> '%s'".formatted(expected, result));
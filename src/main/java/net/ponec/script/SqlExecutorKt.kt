@@ -9,7 +9,6 @@ package net.ponec.scriptKt
 import java.sql.*
 import java.time.LocalDate
 import java.util.*
-import java.util.regex.Matcher
 import java.util.regex.Pattern
 import java.util.stream.Stream
 import java.util.stream.StreamSupport
@@ -125,22 +124,25 @@ class SqlExecutorKt {
     }
 
     /**
-     * Less than 130 lines long class to simplify work with JDBC.
+     * Less than 200 lines long class to simplify work with JDBC.
      * Original source: [GitHub](https://github.com/pponec/DirectoryBookmarks/blob/development/src/main/java/net/ponec/script/SqlExecutor.java)
      * Licence: Apache License, Version 2.0
      * @author Pavel Ponec, https://github.com/pponec
-     * @version 1.0.7
+     * @version 1.1.0
      */
     internal class SqlParamBuilderKt(private val connection: Connection) : AutoCloseable {
         private val params: MutableMap<String, Array<out Any?>> = HashMap()
-        private val sqlParameterMark = Pattern.compile(":(\\w+)")
         var sqlTemplate: String = ""; private set
+        /** The SQL template compiled to literals and parameter marks  */
+        private var sqlParts: List<SqlPart> = emptyList()
         private var preparedStatement: PreparedStatement? = null
+        private var fetchSize = 0
 
         /** Close statement (if any) and set the new SQL template  */
         fun sql(vararg sqlLines: String): SqlParamBuilderKt {
             close()
             sqlTemplate = if (sqlLines.size == 1) sqlLines[0] else sqlLines.joinToString("\n")
+            sqlParts = compile(sqlTemplate)
             return this
         }
 
@@ -150,9 +152,26 @@ class SqlExecutorKt {
             return this
         }
 
+        /** Set the number of rows fetched from the database at once, zero is a driver default.  */
+        fun fetchSize(rows: Int): SqlParamBuilderKt {
+            fetchSize = rows
+            preparedStatement?.fetchSize = rows
+            return this
+        }
+
         fun execute(): Int =
             prepareStatement().executeUpdate()
 
+        /** Assign the current parameters and add them to the batch of the statement.  */
+        fun addBatch(): SqlParamBuilderKt {
+            prepareStatement().addBatch()
+            return this
+        }
+
+        /** Execute the batch of the statement.  */
+        fun executeBatch(): IntArray =
+            preparedStatement?.executeBatch() ?: IntArray(0)
+
         /** A ResultSet object is automatically closed when the Statement object that generated it is closed,
          * re-executed, or used to retrieve the next result from a sequence of multiple results.  */
         private fun executeSelect(): ResultSet {
@@ -189,6 +208,13 @@ class SqlExecutorKt {
         fun <R> streamMap(mapper: (ResultSet) -> R): Stream<R> =
             stream().map(mapper)
 
+        /** Execute the query and pass a lazy sequence of mapped rows to the block.
+         * The ResultSet is closed when the block ends, so the sequence must not leave it.  */
+        fun <R, T> useSequence(mapper: (ResultSet) -> R, block: (Sequence<R>) -> T): T =
+            executeSelect().use { resultSet ->
+                block(RowIterator(resultSet, mapper).asSequence().constrainOnce())
+            }
+
         /** The method closes a PreparedStatement object with related objects, not the database connection.  */
         override fun close() {
             try {
@@ -201,11 +227,20 @@ class SqlExecutorKt {
             }
         }
 
+        /** Build or reuse a PreparedStatement and assign current parameters.
+         * The SQL text is built for a new statement only.  */
         @Throws(SQLException::class)
         fun prepareStatement(): PreparedStatement {
             val sqlValues = mutableListOf<Any?>()
-            val sql = buildSql(sqlValues, false)
-            val result = preparedStatement ?: connection.prepareStatement(sql) ?: throw IllegalStateException()
+            val current = preparedStatement
+            val result = if (current != null) {
+                buildSql(sqlValues, toLog = false, toText = false)
+                current
+            } else {
+                connection.prepareStatement(buildSql(sqlValues, toLog = false, toText = true))
+                    .also { if (fetchSize > 0) it.fetchSize = fetchSize }
+                    ?: throw IllegalStateException()
+            }
             for (i in 0 until sqlValues.size) {
                 result.setObject(i + 1, sqlValues[i])
             }
@@ -213,28 +248,30 @@ class SqlExecutorKt {
             return result
         }
 
-        private fun buildSql(sqlValues: MutableList<Any?>, toLog: Boolean): String {
-            val result = StringBuilder(256)
-            val matcher = sqlParameterMark.matcher(sqlTemplate)
+        private fun buildSql(sqlValues: MutableList<Any?>, toLog: Boolean, toText: Boolean = true): String {
+            val result = StringBuilder(if (toText) sqlTemplate.length + 16 else 0)
             val missingKeys = mutableSetOf<Any>()
-            while (matcher.find()) {
-                val key = matcher.group(1)
-                val values = params[key]
+            for (part in sqlParts) {
+                if (!part.param) {
+                    if (toText) result.append(part.text)
+                    continue
+                }
+                val values = params[part.text]
                 if (values != null) {
-                    matcher.appendReplacement(result, "")
                     for (i in values.indices) {
-                        if (i > 0) result.append(',')
-                        result.append(Matcher.quoteReplacement(if (toLog) "[${values[i]}]" else "?"))
+                        if (toText) {
+                            if (i > 0) result.append(',')
+                            result.append(if (toLog) "[${values[i]}]" else "?")
+                        }
                         sqlValues.add(values[i])
                     }
                 } else {
-                    matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group()))
-                    missingKeys.add(key)
+                    if (toText) result.append(':').append(part.text)
+                    missingKeys.add(part.text)
                 }
             }
             require(toLog || missingKeys.isEmpty()) {
                 "Missing value of the keys: [${missingKeys.joinToString (", ")}]" }
-            matcher.appendTail(result)
             return result.toString()
         }
 
@@ -245,5 +282,42 @@ class SqlExecutorKt {
         fun toStringLine(): String {
             return toString().replace("\\s*\\R+\\s*".toRegex(), " ")
         }
+
+        /** A literal text or a name of the parameter  */
+        private class SqlPart(val text: String, val param: Boolean)
+
+        private class RowIterator<R>(
+            private val resultSet: ResultSet,
+            private val mapper: (ResultSet) -> R
+        ) : Iterator<R> {
+            private var hasRow: Boolean? = null
+
+            override fun hasNext(): Boolean =
+                hasRow ?: resultSet.next().also { hasRow = it }
+
+            override fun next(): R {
+                if (!hasNext()) throw NoSuchElementException()
+                hasRow = null
+                return mapper(resultSet)
+            }
+        }
+
+        private companion object {
+            val sqlParameterMark: Pattern = Pattern.compile(":(\\w+)")
+
+            /** Split the SQL template to literals and parameter marks by a regular expression once  */
+            fun compile(sqlTemplate: String): List<SqlPart> {
+                val result = mutableListOf<SqlPart>()
+                val matcher = sqlParameterMark.matcher(sqlTemplate)
+                var last = 0
+                while (matcher.find()) {
+                    if (matcher.start() > last) result.add(SqlPart(sqlTemplate.substring(last, matcher.start()), false))
+                    result.add(SqlPart(matcher.group(1), true))
+                    last = matcher.end()
+                }
+                if (last < sqlTemplate.length) result.add(SqlPart(sqlTemplate.substring(last), false))
+                return result
+            }
+        }
     }
 }
\ No newline at end of file
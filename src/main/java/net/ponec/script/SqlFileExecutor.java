@@ -7,6 +7,9 @@
  */
 package net.ponec.script;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.*;
@@ -27,7 +30,30 @@ public final class SqlFileExecutor {
     public static void main(final String[] args) throws Exception {
         System.out.println("Arguments: " + List.of(args));
         try (var dbConnection = db.connection()) {
-            new SqlFileExecutor().mainStart(dbConnection);
+            if (args.length > 0) {
+                final var commitSize = args.length > 1 && args[1].matches("\\d+");
+                final var params = new HashMap<String, String>();
+                for (int i = commitSize ? 2 : 1; i < args.length; i++) {
+                    final var separator = args[i].indexOf('=');
+                    if (separator < 1) {
+                        throw new IllegalArgumentException("A parameter of the form key=value is expected: " + args[i]);
+                    }
+                    params.put(args[i].substring(0, separator), args[i].substring(separator + 1));
+                }
+                new SqlFileExecutor().mainScript(dbConnection, Path.of(args[0]),
+                        commitSize ? Integer.parseInt(args[1]) : 1_000, params);
+            } else {
+                new SqlFileExecutor().mainStart(dbConnection);
+            }
+        }
+    }
+
+    /** Run all statements of the SQL script file and commit them every {@code commitSize} statements.
+     * @param params Values of the {@code :key} marks of the script */
+    void mainScript(Connection dbConnection, Path script, int commitSize, Map<String, ?> params) throws Exception {
+        try (var reader = Files.newBufferedReader(script)) {
+            final var count = new SqlScriptRunner(dbConnection, params, commitSize).run(reader);
+            System.out.printf("# %s statements executed%n", count);
         }
     }
 
@@ -72,6 +98,228 @@ public final class SqlFileExecutor {
         }
     }
 
+    /** Runs statements of a SQL script read by a streaming parser. Consecutive INSERT statements
+     * are sent in JDBC batches: literal statements in a Statement batch, statements with {@code :param}
+     * marks with an identical template in a PreparedStatement batch. */
+    static final class SqlScriptRunner {
+        private final Connection dbConnection;
+        private final Map<String, ?> params;
+        private final int commitSize;
+
+        /**
+         * @param params Values of the SQL parameters, an {@code Object[]} value is expanded to a list of values.
+         * @param commitSize Statements count of one transaction.
+         */
+        SqlScriptRunner(Connection dbConnection, Map<String, ?> params, int commitSize) {
+            this.dbConnection = dbConnection;
+            this.params = params;
+            this.commitSize = Math.max(1, commitSize);
+        }
+
+        /** Executes all statements and returns their count. Statements are rolled back on an error
+         * since the last commit. */
+        public long run(Reader reader) throws SQLException, IOException {
+            final var autoCommit = dbConnection.getAutoCommit();
+            dbConnection.setAutoCommit(false);
+            try (var statement = dbConnection.createStatement();
+                 var builder = new SqlParamBuilder(dbConnection)) {
+                final var parser = new SqlScriptParser(reader);
+                var batchTemplate = (String) null;
+                var statementBatch = false;
+                var count = 0L;
+                for (SqlScriptParser.SqlStatement sql; (sql = parser.next()) != null; ) {
+                    final var insert = sql.isInsert();
+                    if (!insert || sql.hasParams()) {
+                        statementBatch = flush(statement, statementBatch);
+                    }
+                    if (!insert || !sql.hasParams() || !sql.sql().equals(batchTemplate)) {
+                        batchTemplate = flush(builder, batchTemplate);
+                    }
+                    if (insert && !sql.hasParams()) {
+                        statement.addBatch(sql.sql());
+                        statementBatch = true;
+                    } else if (insert) {
+                        if (batchTemplate == null) {
+                            batchTemplate = sql.sql();
+                            builder.sql(batchTemplate);
+                        }
+                        bindParams(builder).addBatch();
+                    } else if (sql.hasParams()) {
+                        bindParams(builder.sql(sql.sql())).execute();
+                    } else {
+                        statement.execute(sql.sql());
+                    }
+                    if (++count % commitSize == 0) {
+                        statementBatch = flush(statement, statementBatch);
+                        batchTemplate = flush(builder, batchTemplate);
+                        dbConnection.commit();
+                    }
+                }
+                flush(statement, statementBatch);
+                flush(builder, batchTemplate);
+                dbConnection.commit();
+                return count;
+            } catch (SQLException | IOException | RuntimeException e) {
+                dbConnection.rollback();
+                throw e;
+            } finally {
+                dbConnection.setAutoCommit(autoCommit);
+            }
+        }
+
+        private SqlParamBuilder bindParams(SqlParamBuilder builder) {
+            params.forEach((key, value) -> builder.bind(key, value instanceof Object[] values ? values : new Object[]{value}));
+            return builder;
+        }
+
+        /** Executes a Statement batch, if any, and returns {@code false}. */
+        private static boolean flush(Statement statement, boolean batch) throws SQLException {
+            if (batch) {
+                statement.executeBatch();
+            }
+            return false;
+        }
+
+        /** Executes a PreparedStatement batch, if any, and returns {@code null}. */
+        private static String flush(SqlParamBuilder builder, String batchTemplate) throws SQLException {
+            if (batchTemplate != null) {
+                builder.executeBatch();
+                builder.sql();
+            }
+            return null;
+        }
+    }
+
+    /** A streaming parser of SQL statements separated by a semicolon. Semicolons inside quotes,
+     * comments and dollar-quoted blocks (like {@code $$...$$} or {@code $body$...$body$}) are ignored. */
+    static final class SqlScriptParser {
+        private final Reader reader;
+        private final StringBuilder sql = new StringBuilder(256);
+        private int next = -2;
+
+        SqlScriptParser(Reader reader) {
+            this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader, 1 << 16);
+        }
+
+        /** Returns the next statement without the semicolon or {@code null} at the end of the script. */
+        public SqlStatement next() throws IOException {
+            sql.setLength(0);
+            var content = false;
+            var params = false;
+            for (int c = read(); c >= 0; c = read()) {
+                switch (c) {
+                    case ';' -> {
+                        if (content) {
+                            return new SqlStatement(sql.toString().trim(), params);
+                        }
+                        sql.setLength(0);
+                        continue;
+                    }
+                    case '\'', '"' -> {
+                        sql.append((char) c);
+                        readQuoted(c);
+                    }
+                    case '-' -> {
+                        if (peek() == '-') {
+                            for (; c >= 0 && c != '\n'; c = read()) {
+                                sql.append((char) c);
+                            }
+                            sql.append('\n');
+                            if (!content) sql.setLength(0);
+                            continue;
+                        }
+                        sql.append((char) c);
+                    }
+                    case '/' -> {
+                        sql.append((char) c);
+                        if (peek() == '*') {
+                            sql.append((char) read());
+                            for (int prev = 0; (c = read()) >= 0; prev = c) {
+                                sql.append((char) c);
+                                if (prev == '*' && c == '/') break;
+                            }
+                            if (!content) sql.setLength(0);
+                            continue;
+                        }
+                    }
+                    case '$' -> {
+                        sql.append((char) c);
+                        readDollarQuoted();
+                    }
+                    case ':' -> {
+                        sql.append((char) c);
+                        if (peek() == ':') {
+                            sql.append((char) read());
+                        } else if (Character.isLetter(peek()) || peek() == '_') {
+                            params = true;
+                        }
+                    }
+                    default -> sql.append((char) c);
+                }
+                content |= c > ' ';
+            }
+            return content ? new SqlStatement(sql.toString().trim(), params) : null;
+        }
+
+        private void readQuoted(int quote) throws IOException {
+            for (int c; (c = read()) >= 0; ) {
+                sql.append((char) c);
+                if (c == quote) {
+                    if (peek() != quote) return;
+                    sql.append((char) read());
+                }
+            }
+        }
+
+        /** Reads a dollar-quoted block after the first {@code $} character. */
+        private void readDollarQuoted() throws IOException {
+            final var start = sql.length() - 1;
+            while (Character.isLetterOrDigit(peek()) || peek() == '_') {
+                sql.append((char) read());
+            }
+            if (peek() != '$') {
+                return; // No dollar quotes, for example a positional parameter $1
+            }
+            sql.append((char) read());
+            final var tag = sql.substring(start);
+            for (int c; (c = read()) >= 0; ) {
+                sql.append((char) c);
+                if (c == '$' && sql.length() >= start + 2 * tag.length() && endsWith(tag)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean endsWith(String tag) {
+            for (int i = tag.length() - 1, j = sql.length() - 1; i >= 0; i--, j--) {
+                if (sql.charAt(j) != tag.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private int read() throws IOException {
+            if (next != -2) {
+                final var result = next;
+                next = -2;
+                return result;
+            }
+            return reader.read();
+        }
+
+        private int peek() throws IOException {
+            if (next == -2) {
+                next = reader.read();
+            }
+            return next;
+        }
+
+        record SqlStatement(String sql, boolean hasParams) {
+            boolean isInsert() {
+                return sql.regionMatches(true, 0, "INSERT", 0, 6);
+            }
+        }
+    }
+
     private <T> void assertEquals(T expected, T result) {
         if (!Objects.equals(expected, result)) {
             throw new IllegalStateException("Objects are not equals: '%s' <> '%s'".formatted(expected, result));
@@ -86,8 +334,10 @@ public final class SqlFileExecutor {
      * @version 1.0.9
      */
     static class SqlParamBuilder implements AutoCloseable {
-        /** SQL parameter mark type of {@code :param} */
-        private static final Pattern SQL_MARK = Pattern.compile(":(\\w+)");
+        /** SQL parameter mark type of {@code :param}. Quoted texts, comments, dollar-quoted blocks
+         * and the {@code ::} cast operator are matched without the key to be skipped. */
+        private static final Pattern SQL_MARK = Pattern.compile(
+                "'[^']*'|\"[^\"]*\"|--[^\\n]*|/\\*.*?\\*/|\\$(\\w*)\\$.*?\\$\\1\\$|::|:(?<key>\\w+)", Pattern.DOTALL);
         private final Connection dbConnection;
         private final Map<String, Object[]> params = new HashMap<>();
         protected String sqlTemplate = "";
@@ -114,6 +364,17 @@ public final class SqlFileExecutor {
             return prepareStatement().executeUpdate();
         }
 
+        /** Assign the parameters and add them to the batch of the statement. */
+        public SqlParamBuilder addBatch() throws SQLException {
+            prepareStatement().addBatch();
+            return this;
+        }
+
+        /** Execute the batch of the statement */
+        public int[] executeBatch() throws SQLException {
+            return preparedStatement != null ? preparedStatement.executeBatch() : new int[0];
+        }
+
         /** A ResultSet object is automatically closed when the Statement object that generated it is closed,
           * re-executed, or used to retrieve the next result from a sequence of multiple results. */
         private ResultSet executeSelect() throws IllegalStateException {
@@ -183,7 +444,11 @@ public final class SqlFileExecutor {
             final var matcher = SQL_MARK.matcher(sqlTemplate);
             final var missingKeys = new HashSet<>();
             while (matcher.find()) {
-                final var key = matcher.group(1);
+                final var key = matcher.group("key");
+                if (key == null) {
+                    matcher.appendReplacement(result, Matcher.quoteReplacement(matcher.group()));
+                    continue;
+                }
                 final var values = params.get(key);
                 if (values != null) {
                     matcher.appendReplacement(result, "");
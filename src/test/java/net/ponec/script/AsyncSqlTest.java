@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2024-2024 Pavel Ponec
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.ponec.script;
+
+import net.ponec.script.SqlExecutor.AsyncSql;
+import net.ponec.script.SqlExecutor.ConnectionProvider;
+import org.junit.jupiter.api.Test;
+
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the AsyncSql class
+ * @author Pavel Ponec
+ */
+public class AsyncSqlTest {
+
+    @Test
+    public void testPooledConnections() throws Exception {
+        var provider = new ConnectionProvider("org.h2.Driver", "jdbc:h2:mem:async;DB_CLOSE_DELAY=-1", "", "");
+        try (var pool = provider.pool(4); var async = new AsyncSql(pool::connection, true)) {
+            async.execute("CREATE TABLE item (id INTEGER PRIMARY KEY, code VARCHAR(10))", b -> {}).join();
+
+            var inserts = IntStream.range(0, 10)
+                    .mapToObj(i -> async.executeBatch("INSERT INTO item (id, code) VALUES (:id, :code)",
+                            IntStream.range(i * 100, i * 100 + 100).boxed().toList(),
+                            (builder, id) -> builder.bind("id", id).bind("code", "c" + id)))
+                    .toList();
+            CompletableFuture.allOf(inserts.toArray(CompletableFuture[]::new)).join();
+
+            var queries = IntStream.range(0, 10)
+                    .mapToObj(i -> async.list("SELECT t.id FROM item t WHERE t.id >= :lo AND t.id < :hi ORDER BY t.id",
+                            b -> b.bind("lo", i * 100).bind("hi", i * 100 + 3),
+                            rs -> rs.getInt(1)))
+                    .toList();
+            for (int i = 0; i < queries.size(); i++) {
+                assertEquals(List.of(i * 100, i * 100 + 1, i * 100 + 2), queries.get(i).join());
+            }
+            assertTrue(pool.stats().size() <= 4);
+            assertEquals(pool.stats().size(), pool.stats().idle());
+        }
+    }
+
+    @Test
+    public void testSharedConnection() throws Exception {
+        try (var connection = DriverManager.getConnection("jdbc:h2:mem:asyncShared", "", "");
+             var async = new AsyncSql(() -> connection, false)) {
+            var active = new AtomicInteger();
+            var maxActive = new AtomicInteger();
+            var results = IntStream.range(0, 20)
+                    .mapToObj(i -> async.submit(builder -> {
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(2L);
+                            return builder.sql("SELECT :i").bind("i", i).streamMap(rs -> rs.getInt(1)).findFirst().orElseThrow();
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                    }))
+                    .toList();
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i, results.get(i).join());
+            }
+            assertEquals(1, maxActive.get());
+            assertFalse(connection.isClosed());
+        }
+    }
+}
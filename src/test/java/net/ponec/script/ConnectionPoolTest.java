@@ -0,0 +1,162 @@
+/*
+ *  Copyright 2024-2024 Pavel Ponec
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.ponec.script;
+
+import net.ponec.script.SqlExecutor.ConnectionPool;
+import net.ponec.script.SqlExecutor.ConnectionProvider;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the ConnectionPool class
+ * @author Pavel Ponec
+ */
+public class ConnectionPoolTest {
+
+    private final ConnectionProvider provider = new ConnectionProvider("org.h2.Driver",
+            "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1", "", "");
+
+    @Test
+    public void testBorrowAndRelease() throws Exception {
+        try (var pool = new ConnectionPool(provider, 2, Duration.ofMillis(50), Duration.ofMinutes(1), Duration.ofMinutes(1))) {
+            var c1 = pool.connection();
+            var c2 = pool.connection();
+            assertThrows(SQLTimeoutException.class, pool::connection);
+            assertEquals(2, pool.stats().size());
+
+            var original = c1.unwrap(org.h2.jdbc.JdbcConnection.class);
+            c1.close();
+            c1.close();
+            assertTrue(c1.isClosed());
+            assertThrows(SQLException.class, c1::createStatement);
+
+            var c3 = pool.connection();
+            assertSame(original, c3.unwrap(org.h2.jdbc.JdbcConnection.class));
+            assertNotEquals(c1, c3);
+            c2.close();
+            c3.close();
+
+            var stats = pool.stats();
+            assertEquals(2, stats.size());
+            assertEquals(2, stats.idle());
+            assertEquals(3, stats.borrowed());
+            assertTrue(stats.waitNanosMax() >= stats.averageWait().toNanos());
+        }
+    }
+
+    @Test
+    public void testExpiredConnections() throws Exception {
+        try (var pool = new ConnectionPool(provider, 2, Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ZERO)) {
+            var c1 = pool.connection();
+            c1.setAutoCommit(false);
+            var original = c1.unwrap(org.h2.jdbc.JdbcConnection.class);
+            c1.close();
+            assertTrue(original.isClosed());
+            assertEquals(0, pool.stats().size());
+        }
+    }
+
+    @Test
+    public void testFailedValidation() throws Exception {
+        var failing = new AtomicBoolean();
+        var h2Driver = new org.h2.Driver();
+        var driver = (Driver) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Driver.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "acceptsURL" -> ((String) args[0]).startsWith("jdbc:failing:");
+                    case "connect" -> ((String) args[0]).startsWith("jdbc:failing:")
+                            ? failingConnection(h2Driver.connect(((String) args[0]).replace("jdbc:failing:", "jdbc:h2:"),
+                            (Properties) args[1]), failing)
+                            : null;
+                    default -> invoke(method, h2Driver, args);
+                });
+        DriverManager.registerDriver(driver);
+        var failingProvider = new ConnectionProvider("org.h2.Driver", "jdbc:failing:mem:poolFailing;DB_CLOSE_DELAY=-1", "", "");
+        try (var pool = new ConnectionPool(failingProvider, 1, Duration.ofMillis(50), Duration.ofMinutes(1), Duration.ofMinutes(1))) {
+            pool.connection().close();
+            failing.set(true);
+            try (var connection = pool.connection()) {
+                assertFalse(connection.isClosed());
+            }
+            assertEquals(1, pool.stats().size());
+        } finally {
+            DriverManager.deregisterDriver(driver);
+        }
+    }
+
+    @Test
+    public void testResetOnRelease() throws Exception {
+        try (var pool = new ConnectionPool(provider, 1, Duration.ofMillis(50), Duration.ofMinutes(1), Duration.ofMinutes(1))) {
+            var c1 = pool.connection();
+            var isolation = c1.getTransactionIsolation();
+            var readOnly = c1.isReadOnly();
+            c1.setAutoCommit(false);
+            c1.setReadOnly(!readOnly);
+            c1.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            c1.close();
+
+            try (var c2 = pool.connection()) {
+                assertTrue(c2.getAutoCommit());
+                assertEquals(readOnly, c2.isReadOnly());
+                assertEquals(isolation, c2.getTransactionIsolation());
+            }
+        }
+    }
+
+    /** A connection throwing an exception on validation when the flag is set */
+    private static Connection failingConnection(Connection connection, AtomicBoolean failing) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("isValid") && failing.get()) {
+                        throw new SQLException("Validation failed");
+                    }
+                    return invoke(method, connection, args);
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    public void testClosedPool() throws Exception {
+        var pool = new ConnectionPool(provider, 1, Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofMinutes(1));
+        var c1 = pool.connection();
+        pool.close();
+        assertThrows(SQLException.class, pool::connection);
+        var original = c1.unwrap(org.h2.jdbc.JdbcConnection.class);
+        c1.close();
+        assertTrue(original.isClosed());
+        assertEquals(0, pool.stats().size());
+    }
+}
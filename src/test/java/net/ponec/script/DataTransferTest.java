@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2024-2024 Pavel Ponec
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.ponec.script;
+
+import net.ponec.script.SqlExecutor.DataTransfer;
+import net.ponec.script.SqlExecutor.DataTransfer.Format;
+import net.ponec.script.SqlExecutor.SqlParamBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testing the DataTransfer class
+ * @author Pavel Ponec
+ */
+public class DataTransferTest {
+
+    @Test
+    public void testCsv() throws Exception {
+        try (var dbConnection = createDbConnection("transferCsv");
+             var builder = new SqlParamBuilder(dbConnection)) {
+            var csv = export(builder, Format.CSV, "item");
+            var expected = """
+                    ID,NAME,CREATED,ACTIVE,AMOUNT
+                    1,\"Doe, \"\"John\"\"\",2024-01-02,true,1.50
+                    2,,,,
+                    3,"",2024-01-03,false,-2.00
+                    4,"two
+                    lines",,true,
+                    """;
+            assertEquals(expected, csv);
+
+            var rows = DataTransfer.importData(builder, "item_copy", Format.CSV, new StringReader(csv), 2);
+            assertEquals(4, rows);
+            assertEquals(expected, export(builder, Format.CSV, "item_copy"));
+        }
+    }
+
+    @Test
+    public void testNdJson() throws Exception {
+        try (var dbConnection = createDbConnection("transferJson");
+             var builder = new SqlParamBuilder(dbConnection)) {
+            var json = export(builder, Format.NDJSON, "item");
+            var expected = """
+                    {"ID":1,"NAME":"Doe, \\"John\\"","CREATED":"2024-01-02","ACTIVE":true,"AMOUNT":1.50}
+                    {"ID":2,"NAME":null,"CREATED":null,"ACTIVE":null,"AMOUNT":null}
+                    {"ID":3,"NAME":"","CREATED":"2024-01-03","ACTIVE":false,"AMOUNT":-2.00}
+                    {"ID":4,"NAME":"two\\nlines","CREATED":null,"ACTIVE":true,"AMOUNT":null}
+                    """;
+            assertEquals(expected, json);
+
+            var rows = DataTransfer.importData(builder, "item_copy", Format.NDJSON, new StringReader(json), 3);
+            assertEquals(4, rows);
+            assertEquals(expected, export(builder, Format.NDJSON, "item_copy"));
+        }
+    }
+
+    @Test
+    public void testInvalidNames() throws Exception {
+        try (var dbConnection = createDbConnection("transferNames");
+             var builder = new SqlParamBuilder(dbConnection)) {
+            var csv = "ID,NAME\n1,a\n";
+            var e = assertThrows(IllegalArgumentException.class, () -> DataTransfer.importData(builder,
+                    "item_copy (id) SELECT 1; DROP TABLE item; --", Format.CSV, new StringReader(csv), 2));
+            assertTrue(e.getMessage().startsWith("Unsupported table name"), e.getMessage());
+            e = assertThrows(IllegalArgumentException.class, () -> DataTransfer.importData(builder,
+                    "item_copy", Format.CSV, new StringReader("ID,\"NAME) SELECT 1 --\"\n1,a\n"), 2));
+            assertTrue(e.getMessage().startsWith("Unsupported column name"), e.getMessage());
+            e = assertThrows(IllegalArgumentException.class, () -> DataTransfer.importData(builder,
+                    "item_copy", Format.NDJSON, new StringReader("{\"1d\":1}\n"), 2));
+            assertTrue(e.getMessage().startsWith("Unsupported column name"), e.getMessage());
+            assertEquals(1, DataTransfer.importData(builder, "PUBLIC.item_copy", Format.CSV, new StringReader(csv), 2));
+        }
+    }
+
+    private String export(SqlParamBuilder builder, Format format, String table) throws Exception {
+        var writer = new StringWriter();
+        builder.sql("SELECT * FROM " + table + " ORDER BY id");
+        DataTransfer.export(builder, format, writer);
+        return writer.toString();
+    }
+
+    private Connection createDbConnection(String name) throws Exception {
+        var result = DriverManager.getConnection("jdbc:h2:mem:" + name, "", "");
+        try (var builder = new SqlParamBuilder(result)) {
+            for (var table : new String[]{"item", "item_copy"}) {
+                builder.sql("CREATE TABLE " + table + " (id INTEGER PRIMARY KEY, name VARCHAR(64),"
+                        + " created DATE, active BOOLEAN, amount DECIMAL(10,2))").execute();
+            }
+            builder.sql("INSERT INTO item VALUES (:id, :name, :created, :active, :amount)");
+            builder.bind("id", 1).bind("name", "Doe, \"John\"").bind("created", "2024-01-02")
+                    .bind("active", true).bind("amount", "1.5").addBatch();
+            builder.bind("id", 2).bind("name", (Object) null).bind("created", (Object) null)
+                    .bind("active", (Object) null).bind("amount", (Object) null).addBatch();
+            builder.bind("id", 3).bind("name", "").bind("created", "2024-01-03")
+                    .bind("active", false).bind("amount", -2).addBatch();
+            builder.bind("id", 4).bind("name", "two\nlines").bind("created", (Object) null)
+                    .bind("active", true).bind("amount", (Object) null).addBatch();
+            assertEquals(4, builder.executeBatch().length);
+        }
+        return result;
+    }
+}
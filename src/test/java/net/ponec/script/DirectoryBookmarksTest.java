@@ -9,12 +9,22 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.Random;
+import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -133,6 +143,23 @@ public class DirectoryBookmarksTest {
         assertEquals(1, ctx.bookmarkStream().count());
     }
 
+    @Test
+    void fixManyTest() throws Exception {
+        var ctx = DirBookContext.of();
+        var body = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            body.append("key%03d\t%s\n".formatted(i, i % 2 == 0 ? homeDir : "/test/missing/" + i));
+        }
+        Files.writeString(ctx.storeName.toPath(), body);
+
+        ctx.instance.mainRun(list("fix", "10"));
+        var removed = ctx.getOutLines().toList();
+        assertEquals(100, removed.size());
+        assertEquals("Removed: key001\t/test/missing/1", removed.get(0));
+        assertEquals(100, ctx.bookmarkStream().count());
+        assertEquals(101, ctx.bookmarkFile().lines().count());
+    }
+
     @Test
     void bookmarksTest() throws Exception {
         var ctx = DirBookContext.of();
@@ -150,6 +177,27 @@ public class DirectoryBookmarksTest {
         assertEquals("a,b,c", output);
     }
 
+    @Test
+    void bookmarksOfChangedStoreTest() throws Exception {
+        var ctx = DirBookContext.of();
+        var instance = ctx.instance;
+        instance.mainRun(list("save", "/temp/a", "k1"));
+        instance.mainRun(list("save", "/temp/a", "k2"));
+        instance.mainRun(list("bookmarks", "/temp/a"));
+        assertEquals("k1\nk2\n", ctx.getOut());
+
+        // An edit of the store file by another process
+        Files.writeString(ctx.storeName.toPath(), "# Edited\nk3\t/temp/a\n");
+        instance.mainRun(list("bookmarks", "/temp/a"));
+        assertEquals("k3\n", ctx.getOut());
+
+        // A save of the journal mode
+        instance.store.journalLimit = 1_000;
+        instance.mainRun(list("save", "/temp/a", "k4"));
+        instance.mainRun(list("bookmarks", "/temp/a"));
+        assertEquals("k3\nk4\n", ctx.getOut());
+    }
+
     @Test
     void getSubdirTest() throws Exception {
         var ctx = DirBookContext.of();
@@ -188,6 +236,279 @@ public class DirectoryBookmarksTest {
         assertEquals(expected, subdir);
     }
 
+    @Test
+    void storeIndexTest() throws Exception {
+        var ctx = DirBookContext.of();
+        var instance = ctx.instance;
+        var body = new StringBuilder("# Header\n");
+        for (int i = 0; i < 5_000; i++) {
+            body.append("key%s\t/temp/dir%s\t# Comment %s\n".formatted(i, i % 100, i));
+        }
+        Files.writeString(ctx.storeName.toPath(), body);
+
+        instance.mainRun(list("list", "key123"));
+        assertEquals("/temp/dir23\n", ctx.getOut());
+        var ex = assertThrows(RuntimeException.class, () -> instance.mainRun(list("list", "ey1")));
+        assertEquals("Bookmark [ey1] has no directory.", ex.getMessage());
+
+        instance.mainRun(list("bookmarks", "/temp/dir99"));
+        assertEquals(50, ctx.getOutLines().count());
+
+        instance.mainRun(list("save", "/temp/new", "key123"));
+        instance.mainRun(list("list", "key123"));
+        assertEquals("/temp/new\n", ctx.getOut());
+        assertEquals(5_000, ctx.bookmarkStream().count());
+
+        Files.writeString(ctx.storeName.toPath(), "key123\t/temp/edited\n");
+        instance.mainRun(list("list", "key123"));
+        assertEquals("/temp/edited\n", ctx.getOut());
+    }
+
+    @Test
+    void snapshotTest() throws Exception {
+        var ctx = DirBookContext.of();
+        ctx.instance.mainRun(list("save", "/temp/a", "a"));
+        ctx.instance.mainRun(list("save", "/temp/b", "b", "Comment"));
+        var snapshotFile = new File(ctx.storeName.getPath().replaceFirst("\\.temp$", ".bin"));
+        assertTrue(snapshotFile.isFile());
+
+        var snapshot = DirectoryBookmarks.Snapshot.open(snapshotFile, ctx.storeName, ctx.journalFile(), true);
+        assertNotNull(snapshot);
+        assertEquals("a\t/temp/a", snapshot.line("a"));
+        assertEquals("b\t/temp/b\t# Comment", snapshot.line("b"));
+        assertNull(snapshot.line("c"));
+        assertEquals(list("a\t/temp/a", "b\t/temp/b\t# Comment"), snapshot.lines());
+
+        var instance = ctx.newInstance();
+        instance.mainRun(list("list", "b"));
+        assertEquals("/temp/b\n", ctx.getOut());
+        ctx.newInstance().mainRun(list("list"));
+        assertEquals("a\t/temp/a\nb\t/temp/b\t# Comment\n", ctx.getOut());
+
+        Files.writeString(ctx.storeName.toPath(), "b\t/temp/edited\n");
+        assertNull(DirectoryBookmarks.Snapshot.open(snapshotFile, ctx.storeName, ctx.journalFile(), true));
+        instance = ctx.newInstance();
+        instance.mainRun(list("list", "b"));
+        assertEquals("/temp/edited\n", ctx.getOut());
+        assertNotNull(DirectoryBookmarks.Snapshot.open(snapshotFile, ctx.storeName, ctx.journalFile(), true));
+    }
+
+    @Test
+    void journalTest() throws Exception {
+        var ctx = DirBookContext.of();
+        var instance = ctx.instance;
+        instance.store.journalLimit = 1_000;
+        instance.mainRun(list("save", "/temp/a", "a"));
+        instance.mainRun(list("save", "/temp/b", "b", "Comment"));
+        instance.mainRun(list("delete", "a"));
+        assertEquals("", ctx.bookmarkFile());
+        assertEquals("+a\t/temp/a\n+b\t/temp/b\t# Comment\n-a\n", Files.readString(ctx.journalFile().toPath()));
+        assertEquals("b\t/temp/b\t# Comment", ctx.bookmarksString());
+
+        var reader = ctx.newInstance();
+        reader.mainRun(list("list", "b"));
+        assertEquals("/temp/b\n", ctx.getOut());
+        assertThrows(RuntimeException.class, () -> reader.mainRun(list("list", "a")));
+
+        // A save appends the journal only, a cold reader replays the journal on the snapshot
+        var snapshotFile = new File(ctx.storeName.getPath().replaceFirst("\\.temp$", ".bin"));
+        var snapshotBytes = Files.readAllBytes(snapshotFile.toPath());
+        var saver = ctx.newInstance();
+        saver.store.journalLimit = 1_000;
+        saver.mainRun(list("save", "/temp/c", "c"));
+        saver.mainRun(list("delete", "b"));
+        assertArrayEquals(snapshotBytes, Files.readAllBytes(snapshotFile.toPath()));
+        assertEquals("", ctx.bookmarkFile());
+        ctx.newInstance().mainRun(list("list", "c"));
+        assertEquals("/temp/c\n", ctx.getOut());
+        ctx.newInstance().mainRun(list("complete", ""));
+        assertEquals("c\n", ctx.getOut());
+        ctx.newInstance().mainRun(list("list"));
+        assertEquals("c\t/temp/c\n", ctx.getOut());
+        assertArrayEquals(snapshotBytes, Files.readAllBytes(snapshotFile.toPath()));
+
+        var threads = IntStream.range(0, 4).mapToObj(t -> new Thread(() -> {
+            var writer = ctx.newInstance();
+            writer.store.journalLimit = 1_000;
+            for (int i = 0; i < 25; i++) {
+                try {
+                    writer.mainRun(list("save", "/temp/dir" + i, "k%s-%s".formatted(t, i)));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        })).toList();
+        threads.forEach(Thread::start);
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(101, ctx.bookmarkStream().count());
+        assertTrue(ctx.journalFile().length() <= 1_000);
+        assertTrue(ctx.bookmarkFile().lines().count() > 50);
+        reader.mainRun(list("list", "k0-0"));
+        assertEquals("/temp/dir0\n", ctx.getOut());
+    }
+
+    @Test
+    void completeTest() throws Exception {
+        var index = new DirectoryBookmarks.KeyIndex(list("Work", "doc", "docs", "download", "myDocuments", "project-doc", "wdoc"));
+        assertEquals(list("doc", "docs"), index.startingWith("doc"));
+        assertEquals(list(), index.startingWith("x"));
+        assertEquals(list("doc", "docs", "wdoc", "myDocuments", "project-doc"), index.find("doc"));
+        assertEquals(list("download"), index.find("dwl"));
+        assertEquals(list("Work", "wdoc", "download"), index.find("wo"));
+        assertEquals(list("Work"), index.complete("W"));
+        assertEquals(list("Work", "wdoc", "download"), index.complete("wo"));
+
+        var ctx = DirBookContext.of();
+        ctx.instance.mainRun(list("save", "/temp/a", "alpha"));
+        ctx.instance.mainRun(list("save", "/temp/b", "alpine"));
+        ctx.instance.mainRun(list("save", "/temp/c", "beta"));
+        ctx.newInstance().mainRun(list("complete", "al"));
+        assertEquals("alpha\nalpine\n", ctx.getOut());
+        ctx.instance.mainRun(list("complete", "lp"));
+        assertEquals("alpha\nalpine\n", ctx.getOut());
+        ctx.instance.mainRun(list("complete", "x"));
+        assertEquals("", ctx.getOut());
+    }
+
+    @Test
+    void usageTest() throws Exception {
+        var ctx = DirBookContext.of();
+        var instance = ctx.instance;
+        instance.store.usage.limit = 200;
+        instance.mainRun(list("save", "/temp/docs", "docs"));
+        instance.mainRun(list("save", "/temp/download", "download"));
+        instance.mainRun(list("save", "/temp/work", "work"));
+        instance.mainRun(list("jump", "do"));
+        assertEquals("/temp/docs\n", ctx.getOut());
+        instance.mainRun(list("get", "download"));
+        instance.mainRun(list("list", "download/src"));
+        assertEquals("/temp/download\n/temp/download/src\n", ctx.getOut());
+        assertFalse(ctx.usageFile().exists());
+
+        instance.store.flushUsage(true);
+        assertEquals(list("docs\t1", "download\t2"), Files.readAllLines(ctx.usageFile().toPath()).stream()
+                .map(line -> line.substring(0, line.lastIndexOf('\t')))
+                .toList());
+        var reader = ctx.newInstance();
+        reader.store.usage.limit = 200;
+        reader.mainRun(list("jump", "do/src"));
+        assertEquals("/temp/download/src\n", ctx.getOut());
+        reader.mainRun(list("jump", "docs"));
+        assertEquals("/temp/docs\n", ctx.getOut());
+        reader.mainRun(list("top"));
+        assertEquals("download docs", ctx.getOutLines().map(line -> line.split("\t")[1]).collect(Collectors.joining(" ")));
+
+        reader.mainRun(list("remove", "docs"));
+        for (int i = 0; i < 20; i++) {
+            reader.mainRun(list("get", "work"));
+            reader.store.flushUsage(true);
+        }
+        var hits = instance.store.usage.hits();
+        assertEquals(Set.of("download", "work"), hits.keySet());
+        assertEquals(3, hits.get("download").count());
+        assertEquals(20, hits.get("work").count());
+        assertTrue(ctx.usageFile().length() <= 200);
+    }
+
+    @Test
+    void withinTest() throws Exception {
+        var root = Files.createTempDirectory("directoryBookmarks").toRealPath();
+        try {
+            Files.createDirectories(root.resolve("a/b"));
+            Files.createDirectories(root.resolve("c"));
+            Files.createSymbolicLink(root.resolve("link"), root.resolve("a"));
+            var ctx = DirBookContext.of();
+            var instance = ctx.instance;
+            instance.mainRun(list("save", root + "/a", "ka"));
+            instance.mainRun(list("save", root + "/a/b", "kb"));
+            instance.mainRun(list("save", root + "/c", "kc"));
+            instance.mainRun(list("save", root + "/link/b", "kl"));
+            instance.mainRun(list("save", root + "/missing/../c", "km"));
+            instance.mainRun(list("save", "/temp/x", "kx"));
+
+            instance.mainRun(list("within", root + "/a"));
+            assertEquals("ka kb kl", keysOf(ctx.getOutLines()));
+            instance.mainRun(list("within", root + "/link"));
+            assertEquals("ka kb kl", keysOf(ctx.getOutLines()));
+            instance.mainRun(list("within", root + "/a/b", root + "/c"));
+            assertEquals("kb kc kl km", keysOf(ctx.getOutLines()));
+            instance.mainRun(list("within", root.toString(), root + "/a"));
+            assertEquals("ka kb kc kl km", keysOf(ctx.getOutLines()));
+            instance.mainRun(list("within", "/temp"));
+            assertEquals("kx\t/temp/x\n", ctx.getOut());
+            instance.mainRun(list("within", root + "/missing"));
+            assertEquals("", ctx.getOut());
+
+            // Canonical paths are saved for the store file state
+            var pathFile = Path.of(ctx.storeName.getPath().replaceFirst("\\.temp$", ".paths"));
+            assertTrue(Files.readAllLines(pathFile).contains(root + "/link/b\t" + root + "/a/b"));
+            Files.writeString(pathFile, Files.readString(pathFile)
+                    .replace(root + "/c\t" + root + "/c", root + "/c\t" + root + "/a/c"));
+            ctx.newInstance().mainRun(list("within", root + "/a"));
+            assertEquals("ka kb kc kl", keysOf(ctx.getOutLines()));
+            instance.mainRun(list("save", "/temp/y", "ky"));
+            ctx.newInstance().mainRun(list("within", root + "/a"));
+            assertEquals("ka kb kl", keysOf(ctx.getOutLines()));
+            Files.delete(pathFile);
+        } finally {
+            try (var paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private String keysOf(Stream<String> lines) {
+        return lines.map(line -> line.split("\t")[0]).collect(Collectors.joining(" "));
+    }
+
+    @Test
+    void daemonTest() throws Exception {
+        var ctx = DirBookContext.of();
+        var socket = Path.of(ctx.storeName.getPath().replaceFirst("\\.temp$", ".socket"));
+        try (var daemon = ctx.instance.new Daemon(socket)) {
+            var thread = new Thread(() -> {
+                try {
+                    daemon.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            thread.start();
+
+            assertEquals("0\n", request(socket, "/temp/work", "save", ".", "w", "Work"));
+            assertEquals("0\n/temp/work/src\n", request(socket, "/", "get", "w/src"));
+            assertEquals("0\nw\n", request(socket, "/temp/work", "b"));
+            assertEquals("1\nBookmark [x] has no directory.\n", request(socket, "/", "l", "x"));
+            assertEquals("1\nUnsupported request: compile\n", request(socket, "/", "compile"));
+            assertEquals("w\t/temp/work\t# Work", ctx.bookmarksString());
+
+            // An idle client is dropped after the timeout
+            daemon.timeout = Duration.ofMillis(200);
+            try (var idle = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+                idle.write(ByteBuffer.wrap("/temp/work".getBytes(charset)));
+                assertEquals("0\nw\n", assertTimeoutPreemptively(Duration.ofSeconds(5),
+                        () -> request(socket, "/temp/work", "b")));
+                assertEquals(-1, idle.read(ByteBuffer.allocate(16)));
+            }
+
+            daemon.close();
+            thread.join(5_000);
+            assertFalse(thread.isAlive());
+            assertFalse(Files.exists(socket));
+        }
+    }
+
+    /** Send a request to the daemon */
+    private String request(Path socket, String currentDir, String... args) throws IOException {
+        try (var channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            var request = currentDir + "\t" + String.join("\t", args) + "\n";
+            channel.write(ByteBuffer.wrap(request.getBytes(charset)));
+            return new String(Channels.newInputStream(channel).readAllBytes(), charset);
+        }
+    }
+
     @Test
     void regexpTest() throws Exception {
         // Input values
@@ -261,6 +582,18 @@ public class DirectoryBookmarksTest {
             return out.toString(DirectoryBookmarksTest.charset);
         }
 
+        public File journalFile() {
+            return new File(storeName.getPath().replaceFirst("\\.temp$", ".journal"));
+        }
+
+        public File usageFile() {
+            return new File(storeName.getPath().replaceFirst("\\.temp$", ".usage"));
+        }
+
+        public DirectoryBookmarks newInstance() {
+            return new DirectoryBookmarks(storeName, printOut, printErr, true, true);
+        }
+
         public static DirBookContext of() {
             var file = createFile();
             var outStream = new ByteArrayOutputStream();
@@ -279,6 +612,9 @@ public class DirectoryBookmarksTest {
             try {
                 var result = File.createTempFile("directoryBookmark", ".temp");
                 result.deleteOnExit();
+                new File(result.getPath().replaceFirst("\\.temp$", ".bin")).deleteOnExit();
+                new File(result.getPath().replaceFirst("\\.temp$", ".journal")).deleteOnExit();
+                new File(result.getPath().replaceFirst("\\.temp$", ".usage")).deleteOnExit();
                 return result;
             } catch (IOException e) {
                 throw new RuntimeException(e);
@@ -9,8 +9,10 @@ import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.MissingFormatArgumentException;
 import java.util.Set;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -216,6 +218,37 @@ class PPUtilsTest {
         assertEquals(expected, result);
     }
 
+    @Test
+    void groupTemplate() {
+        var pattern = Pattern.compile("a-(.*)-(.*)-c");
+        var matcher = pattern.matcher("a-hello-world-c");
+        assertTrue(matcher.find());
+
+        assertEquals("a:hello, b:world", PPUtils.GroupTemplate.of("a:%s, b:%s", pattern).format(matcher, "f"));
+        assertEquals("world/hello 100% f%s", PPUtils.GroupTemplate.of("%2$s/%1$s 100%% ${file}", pattern).format(matcher, "f%s"));
+        assertEquals("hello%nworld".formatted(), PPUtils.GroupTemplate.of("%s%n%s", pattern).format(matcher, "f"));
+        assertEquals("[hello] f", PPUtils.GroupTemplate.of("[%-4.5s] ${file}", pattern).format(matcher, "f"));
+        assertThrows(MissingFormatArgumentException.class, () -> PPUtils.GroupTemplate.of("%s%s%s", pattern).format(matcher, "f"));
+    }
+
+    @Test
+    void bufferedPrintStream() {
+        var target = new ByteArrayOutputStream();
+        var out = new PPUtils.BufferedPrintStream(target, StandardCharsets.UTF_8, 10);
+        var nl = System.lineSeparator();
+
+        out.print("abc");
+        out.printf("%s-%s", 1, 'x');
+        assertEquals(0, target.size());
+        out.println(true);
+        assertEquals("abc1-xtrue" + nl, target.toString(StandardCharsets.UTF_8));
+        out.append('č');
+        out.write('!');
+        out.print(2L);
+        out.flush();
+        assertEquals("abc1-xtrue" + nl + "č!2", target.toString(StandardCharsets.UTF_8));
+    }
+
     private static void deleteFile(Path f) {
         try {
             Files.deleteIfExists(f);
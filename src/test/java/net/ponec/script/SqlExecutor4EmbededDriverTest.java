@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2024-2024 Pavel Ponec
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.ponec.script;
+
+import net.ponec.script.SqlExecutor4EmbededDriver.ConnectionProvider;
+import net.ponec.script.SqlExecutor4EmbededDriver.JarClassLoader;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the driver loading of the SqlExecutor4EmbededDriver class
+ * @author Pavel Ponec
+ */
+public class SqlExecutor4EmbededDriverTest {
+
+    /** The H2 driver JAR of the test classpath */
+    private final Path h2Jar = Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+
+    @Test
+    public void testJarClassLoader() throws Exception {
+        for (var mapped : new boolean[]{true, false}) {
+            var loader = JarClassLoader.of(h2Jar, mapped);
+            assertTrue(loader.size() > 100);
+            var driverClass = Class.forName(org.h2.Driver.class.getName(), false, loader);
+            assertSame(loader, driverClass.getClassLoader());
+            assertNotSame(org.h2.Driver.class, driverClass);
+            assertNotNull(loader.getResource("META-INF/MANIFEST.MF"));
+            try (var manifest = loader.getResourceAsStream("META-INF/MANIFEST.MF")) {
+                assertTrue(new String(manifest.readAllBytes()).contains("Manifest-Version"));
+            }
+            assertNull(loader.getResource("no/such/resource.txt"));
+            assertThrows(ClassNotFoundException.class, () -> Class.forName("org.h2.NoSuchClass", false, loader));
+        }
+    }
+
+    @Test
+    public void testEmbeddedDriver() throws Exception {
+        var provider = new ConnectionProvider("org.h2.Driver", "jdbc:h2:mem:embedded;DB_CLOSE_DELAY=-1", "", "");
+        try (var dbConnection = provider.connection(h2Jar)) {
+            assertTrue(dbConnection.getClass().getClassLoader() instanceof JarClassLoader);
+            new SqlExecutor4EmbededDriver().mainStart(dbConnection);
+        }
+        try (var dbConnection = provider.connection(h2Jar);
+             var rs = dbConnection.createStatement().executeQuery("SELECT COUNT(*) FROM employee")) {
+            assertTrue(rs.next());
+            assertEquals(5, rs.getInt(1));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2024-2024 Pavel Ponec
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.ponec.script;
+
+import net.ponec.script.SqlFileExecutor.SqlScriptParser;
+import net.ponec.script.SqlFileExecutor.SqlScriptRunner;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing the SQL script support of the SqlFileExecutor class
+ * @author Pavel Ponec
+ */
+public class SqlFileExecutorTest {
+
+    @Test
+    public void testParser() throws Exception {
+        var script = """
+                -- Header comment; with a semicolon
+                CREATE TABLE a (id INT); /* block; comment */
+                INSERT INTO a VALUES (1, 'x;y', "q;""z");;
+                CREATE FUNCTION f() RETURNS INT AS $$ SELECT 1; $$;
+                CREATE FUNCTION g() AS $body$ a; $$; b $body$;
+                SELECT t.id::text, :id FROM a t WHERE t.time = '12:30'
+                """;
+        var parser = new SqlScriptParser(new StringReader(script));
+        var result = new ArrayList<SqlScriptParser.SqlStatement>();
+        for (SqlScriptParser.SqlStatement sql; (sql = parser.next()) != null; ) {
+            result.add(sql);
+        }
+        assertEquals(List.of(
+                new SqlScriptParser.SqlStatement("CREATE TABLE a (id INT)", false),
+                new SqlScriptParser.SqlStatement("INSERT INTO a VALUES (1, 'x;y', \"q;\"\"z\")", false),
+                new SqlScriptParser.SqlStatement("CREATE FUNCTION f() RETURNS INT AS $$ SELECT 1; $$", false),
+                new SqlScriptParser.SqlStatement("CREATE FUNCTION g() AS $body$ a; $$; b $body$", false),
+                new SqlScriptParser.SqlStatement("SELECT t.id::text, :id FROM a t WHERE t.time = '12:30'", true)
+        ), result);
+        assertTrue(result.get(1).isInsert());
+    }
+
+    @Test
+    public void testRunner() throws Exception {
+        try (var dbConnection = DriverManager.getConnection("jdbc:h2:mem:script", "", "")) {
+            var script = new StringBuilder("""
+                    CREATE TABLE item (id INTEGER PRIMARY KEY, code VARCHAR(10), note VARCHAR(20));
+                    -- Literal inserts
+                    """);
+            for (int i = 1; i <= 25; i++) {
+                script.append("INSERT INTO item VALUES (%s, 'c%s', 'a;b');%n".formatted(i, i));
+            }
+            script.append("""
+                    INSERT INTO item (id, code) VALUES (:id, :code);
+                    UPDATE item SET note = :code WHERE id IN (:ids);
+                    """);
+            var runner = new SqlScriptRunner(dbConnection, Map.of("id", 100, "code", "p", "ids", new Object[]{1, 2}), 10);
+            assertEquals(28, runner.run(new StringReader(script.toString())));
+            assertTrue(dbConnection.getAutoCommit());
+
+            try (var rs = dbConnection.createStatement().executeQuery(
+                    "SELECT COUNT(*), SUM(CASE WHEN note = 'p' THEN 1 ELSE 0 END) FROM item")) {
+                assertTrue(rs.next());
+                assertEquals(26, rs.getInt(1));
+                assertEquals(2, rs.getInt(2));
+            }
+
+            var quotedScript = """
+                    INSERT INTO item (id, code, note) VALUES (:id + 1, '10:30', 'x::y');
+                    INSERT INTO item (id, code, note) VALUES (:id + 2, 12::VARCHAR, /* :note */ :code);
+                    UPDATE item SET note = code || ':x' WHERE id = :id -- :comment
+                    """;
+            assertEquals(3, runner.run(new StringReader(quotedScript)));
+            try (var rs = dbConnection.createStatement().executeQuery(
+                    "SELECT code, note FROM item WHERE id > 100 OR id = 100 AND note = 'p:x' ORDER BY id")) {
+                assertTrue(rs.next());
+                assertEquals("p", rs.getString(1));
+                assertTrue(rs.next());
+                assertEquals("10:30", rs.getString(1));
+                assertEquals("x::y", rs.getString(2));
+                assertTrue(rs.next());
+                assertEquals("12", rs.getString(1));
+                assertEquals("p", rs.getString(2));
+                assertFalse(rs.next());
+            }
+            dbConnection.createStatement().execute("DELETE FROM item WHERE id > 100");
+
+            var wrongScript = "INSERT INTO item VALUES (200, 'x', null); INSERT INTO item VALUES (1, 'duplicate', null);";
+            assertThrows(SQLException.class, () -> runner.run(new StringReader(wrongScript)));
+            try (var rs = dbConnection.createStatement().executeQuery("SELECT COUNT(*) FROM item")) {
+                assertTrue(rs.next());
+                assertEquals(26, rs.getInt(1));
+            }
+        }
+    }
+}
@@ -37,6 +37,7 @@ class SqlParamBuilderKtTest : AbstractJdbcConnector() {
         createDbConnection().use { dbConnection ->
             runSqlStatementTest(dbConnection)
             toStringTest(dbConnection)
+            batchAndSequenceTest(dbConnection)
         }
     }
 
@@ -154,6 +155,32 @@ class SqlParamBuilderKtTest : AbstractJdbcConnector() {
         }
     }
 
+    fun batchAndSequenceTest(dbConnection: Connection) {
+        SqlExecutorKt.SqlParamBuilderKt(dbConnection).use { builder ->
+            println("BATCH INSERT")
+            builder.sql("INSERT INTO employee (id, code, created) VALUES (:id, :code, :created)")
+            for (id in 100 until 110) {
+                builder.bind("id", id)
+                    .bind("code", "B")
+                    .bind("created", someDate)
+                    .addBatch()
+            }
+            Assertions.assertEquals(10, builder.executeBatch().size)
+
+            println("SEQUENCE")
+            builder.sql("SELECT t.id FROM employee t WHERE t.code IN (:code) ORDER BY t.id")
+                .bind("code", "B")
+                .fetchSize(4)
+            val firstIds = builder.useSequence({ it.getInt(1) }) { rows -> rows.take(3).toList() }
+            Assertions.assertEquals(listOf(100, 101, 102), firstIds)
+
+            val count = builder.bind("code", "B")
+                .useSequence({ it.getInt(1) }) { rows -> rows.count() }
+            Assertions.assertEquals(10, count)
+            Assertions.assertEquals(4, builder.prepareStatement().fetchSize)
+        }
+    }
+
     @JvmRecord
     internal data class Employee(val id: Int, val name: String, val created: LocalDate)
 }
@@ -22,11 +22,17 @@ import org.junit.jupiter.api.Test;
 import java.awt.*;
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import net.ponec.script.SqlExecutor.QueryStats;
 import net.ponec.script.SqlExecutor.SqlParamBuilder;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Testing the SqlParamBuilder class
@@ -118,6 +124,10 @@ public class SqlParamBuilderTest extends AbstractJdbcConnector {
 
             assertEquals(5, employees2.size());
 
+            System.out.println("SELECT 3 (map rows to records)");
+            List<Employee> employees3 = builder.streamAs(Employee.class).toList();
+            assertEquals(employees2, employees3);
+
             var counter = new AtomicInteger();
             builder.forEach(rs -> {
                 var id = rs.getInt("id");
@@ -133,6 +143,153 @@ public class SqlParamBuilderTest extends AbstractJdbcConnector {
         }
     }
 
+    @Test
+    public void testStreamPartitioned() throws Exception {
+        final var jdbcUrl = "jdbc:h2:mem:partitions;DB_CLOSE_DELAY=-1";
+        try (var dbConnection = DriverManager.getConnection(jdbcUrl, "", "");
+             var builder = new SqlParamBuilder(dbConnection)) {
+            builder.sql("CREATE TABLE item (id INTEGER PRIMARY KEY, code VARCHAR(10))").execute();
+            builder.sql("INSERT INTO item (id, code) SELECT x, 'c' || x FROM SYSTEM_RANGE(0, 9999)").execute();
+        }
+        final var sql = "SELECT t.id FROM item t WHERE t.id >= :lo AND t.id < :hi ORDER BY t.id";
+        final var expected = IntStream.range(10, 1000).boxed().toList();
+        try (var ids = SqlParamBuilder.streamPartitioned(() -> DriverManager.getConnection(jdbcUrl, "", ""),
+                sql, 10, 1000, 7, true, rs -> rs.getInt(1))) {
+            assertEquals(expected, ids.toList());
+        }
+        try (var ids = SqlParamBuilder.streamPartitioned(() -> DriverManager.getConnection(jdbcUrl, "", ""),
+                sql, 10, 1000, 7, false, rs -> rs.getInt(1))) {
+            assertEquals(expected, ids.sorted().toList());
+        }
+        try (var ids = SqlParamBuilder.streamPartitioned(() -> DriverManager.getConnection(jdbcUrl, "", ""),
+                sql, 10, 1000, 3, true, rs -> rs.getInt(1))) {
+            assertEquals(List.of(10, 11), ids.limit(2).toList());
+        }
+        final var connections = new ArrayList<Connection>();
+        final SqlParamBuilder.SqlSupplier<Connection> supplier = () -> {
+            final var result = DriverManager.getConnection(jdbcUrl, "", "");
+            synchronized (connections) {
+                connections.add(result);
+            }
+            return result;
+        };
+        try (var ids = SqlParamBuilder.streamPartitioned(supplier, sql, 0, 10000, 4, true, rs -> rs.getInt(1))) {
+            assertEquals(Optional.of(0), ids.findFirst());
+        }
+        assertTrue(allClosed(connections), "Connections of a closed stream");
+        connections.clear();
+        assertEquals(Optional.of(0), SqlParamBuilder.streamPartitioned(supplier, sql, 0, 10000, 4, true, rs -> rs.getInt(1))
+                .findFirst()); // An abandoned stream
+        assertTrue(allClosed(connections), "Connections of an abandoned stream");
+
+        var ex = Assertions.assertThrows(SqlParamBuilder.SqlException.class, () ->
+            SqlParamBuilder.streamPartitioned(() -> DriverManager.getConnection(jdbcUrl, "", ""),
+                "SELECT t.id FROM item t WHERE t.id >= :lo AND t.code = :code", 0, 10, 2, false, rs -> rs.getInt(1)).count());
+        assertEquals("Missing SQL parameter: [code]", ex.getMessage());
+    }
+
+    /** Wait for closed connections, a garbage collection is called to clean abandoned streams */
+    private boolean allClosed(List<Connection> connections) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            synchronized (connections) {
+                if (connections.size() == 4 && connections.stream().allMatch(c -> {
+                    try {
+                        return c.isClosed();
+                    } catch (SQLException e) {
+                        return false;
+                    }
+                })) {
+                    return true;
+                }
+            }
+            System.gc();
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    @Test
+    public void testQueryStats() throws Exception {
+        final var slowLog = new ArrayList<String>();
+        final var stats = new QueryStats(Duration.ZERO, slowLog::add);
+        try (var dbConnection = DriverManager.getConnection("jdbc:h2:mem:stats", "", "");
+             var builder = new SqlParamBuilder(dbConnection).listener(stats)) {
+            builder.sql("CREATE TABLE item (id INTEGER PRIMARY KEY)").execute();
+            builder.sql("INSERT INTO item (id) VALUES (:id)");
+            for (int i = 0; i < 10; i++) {
+                builder.bind("id", i).addBatch();
+            }
+            builder.executeBatch();
+            builder.sql("SELECT t.id FROM item t WHERE t.id < :id").bind("id", 5);
+            assertEquals(5, builder.streamMap(rs -> rs.getInt(1)).count());
+            assertEquals(2, builder.streamMap(rs -> rs.getInt(1)).limit(2).count());
+            builder.sql("SELECT 1");
+        }
+
+        final var summary = stats.summary();
+        assertEquals(3, summary.size());
+        final var select = summary.stream()
+                .filter(s -> s.sqlTemplate().startsWith("SELECT"))
+                .findFirst().orElseThrow();
+        assertEquals(2, select.executions());
+        assertEquals(5 + 2, select.rows());
+        assertTrue(select.execute().p50().compareTo(select.execute().p99()) <= 0);
+        assertTrue(stats.report().contains("count=2 rows=7 execute[total="));
+        assertTrue(slowLog.stream().anyMatch(msg -> msg.matches(
+                "Slow SQL fetch \\d+ ms \\(5 rows\\): SELECT t.id FROM item t WHERE t.id < \\[5]")), slowLog::toString);
+    }
+
+    @Test
+    public void testHistogram() {
+        for (long value : new long[]{0L, 3L, 4L, 7L, 8L, 100L, 1_000_000L, Long.MAX_VALUE / 3}) {
+            final var index = QueryStats.Histogram.index(value);
+            assertTrue(value <= QueryStats.Histogram.upperBound(index), "value: " + value);
+            assertTrue(index == 0 || value > QueryStats.Histogram.upperBound(index - 1), "value: " + value);
+        }
+        final var histogram = new QueryStats.Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000L);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(50_000L, histogram.percentile(50), 50_000L / 4);
+        assertEquals(99_000L, histogram.percentile(99), 99_000L / 4);
+    }
+
+    @Test
+    public void testTransactions() throws Exception {
+        try (var dbConnection = DriverManager.getConnection("jdbc:h2:mem:transactions", "", "");
+             var builder = new SqlParamBuilder(dbConnection)) {
+            builder.sql("CREATE TABLE item (id INTEGER PRIMARY KEY)").execute();
+            var inserted = builder.inTransaction(b -> b.sql("INSERT INTO item (id) VALUES (:id)").bind("id", 1).execute());
+            assertEquals(1, inserted);
+            Assertions.assertThrows(SqlParamBuilder.SqlException.class, () -> builder.inTransaction(b -> {
+                b.sql("INSERT INTO item (id) VALUES (:id)").bind("id", 2).execute();
+                return b.bind("id", 1).execute();
+            }));
+            assertTrue(dbConnection.getAutoCommit());
+            assertEquals(List.of(1), builder.sql("SELECT id FROM item").streamMap(rs -> rs.getInt(1)).toList());
+
+            var attempts = new AtomicInteger();
+            try (var chunks = builder.chunkedCommit(3, Duration.ofHours(1), 1)) {
+                for (int i = 10; i < 20; i++) {
+                    final var id = i;
+                    chunks.row(b -> {
+                        b.sql("INSERT INTO item (id) VALUES (:id)").bind("id", id).execute();
+                        if (id == 15 && attempts.incrementAndGet() == 1) {
+                            throw new SQLException("Temporary failure");
+                        }
+                    });
+                }
+                assertEquals(9, chunks.committedRows());
+                assertEquals(2, attempts.get());
+                Assertions.assertThrows(SqlParamBuilder.SqlException.class, () -> chunks.row(b ->
+                        b.sql("INSERT INTO item (id) VALUES (:id)").bind("id", 1).execute()));
+            }
+            assertTrue(dbConnection.getAutoCommit());
+            assertEquals(11, builder.sql("SELECT COUNT(*) FROM item").streamMap(rs -> rs.getInt(1)).findFirst().orElseThrow());
+        }
+    }
+
     public void toStringTest_1(Connection dbConnection) {
         try (var builder = new SqlParamBuilder(dbConnection)) {
 